@@ -0,0 +1,99 @@
+import bench.AnalyzerQuery;
+import bench.SyntheticImdb;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.function.Function;
+
+/**
+ * Public entry points of the analyzer measured by {@code bench.QueryBenchmark}. Queries run against
+ * data loaded once per trial; {@link #LOAD} measures the constructor. Counting and ranking queries
+ * drop the totals before each invocation, so they time the scan rather than a lookup of its kept
+ * result. Searches run against an index built once, as they do after the first search.
+ */
+public final class AnalyzerQueries {
+
+  /** Constructs an analyzer from a CSV file, as callers of the assignment API do. */
+  public static final AnalyzerQuery LOAD =
+      dataset -> {
+        String file = csv(dataset).toString();
+        return () -> new MovieAnalyzer(file);
+      };
+
+  public static final AnalyzerQuery YEAR_COUNT = scanning(MovieAnalyzer::getMovieCountByYear);
+
+  public static final AnalyzerQuery GENRE_COUNT = scanning(MovieAnalyzer::getMovieCountByGenre);
+
+  /** Copies the map so that every pair key is actually built. */
+  public static final AnalyzerQuery CO_STARS =
+      scanning(analyzer -> new HashMap<>(analyzer.getCoStarCount()));
+
+  public static final AnalyzerQuery TOP_MOVIES_RUNTIME =
+      dataset -> {
+        MovieAnalyzer analyzer = analyzer(dataset);
+        return () -> analyzer.getTopMovies(10, "runtime");
+      };
+
+  public static final AnalyzerQuery TOP_MOVIES_OVERVIEW =
+      dataset -> {
+        MovieAnalyzer analyzer = analyzer(dataset);
+        return () -> analyzer.getTopMovies(10, "overview");
+      };
+
+  public static final AnalyzerQuery TOP_STARS_RATING =
+      scanning(analyzer -> analyzer.getTopStars(10, "rating"));
+
+  public static final AnalyzerQuery TOP_STARS_GROSS =
+      scanning(analyzer -> analyzer.getTopStars(10, "gross"));
+
+  public static final AnalyzerQuery SEARCH =
+      dataset -> {
+        MovieAnalyzer analyzer = analyzer(dataset);
+        return () -> analyzer.searchMovies("Drama", 8.0f, 150);
+      };
+
+  private AnalyzerQueries() {}
+
+  private static boolean generated(String dataset) {
+    return dataset.chars().allMatch(Character::isDigit);
+  }
+
+  private static Path csv(String dataset) {
+    if (!generated(dataset)) {
+      return Paths.get("resources", dataset + ".csv");
+    }
+    try {
+      return SyntheticImdb.write(Integer.parseInt(dataset));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static AnalyzerQuery scanning(Function<MovieAnalyzer, Object> query) {
+    return dataset -> {
+      MovieDataset d = load(dataset);
+      MovieAnalyzer analyzer = MovieAnalyzer.builder(d).build();
+      return () -> {
+        SyntheticMovies.dropTotals(d);
+        return query.apply(analyzer);
+      };
+    };
+  }
+
+  private static MovieAnalyzer analyzer(String dataset) {
+    return MovieAnalyzer.builder(load(dataset)).build();
+  }
+
+  private static MovieDataset load(String dataset) {
+    if (generated(dataset)) {
+      return SyntheticMovies.dataset(Integer.parseInt(dataset), 42);
+    }
+    try {
+      return MappedCsvLoader.load(csv(dataset), true);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
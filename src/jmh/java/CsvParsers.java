@@ -0,0 +1,78 @@
+import bench.CsvParser;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/** Parsing strategies measured by {@code bench.CsvTokenizerBenchmark}. */
+public final class CsvParsers {
+
+  private static final Map<Path, Path> SNAPSHOTS = new ConcurrentHashMap<>();
+
+  /** The look-ahead regex split the analyzer constructor used before the tokenizer. */
+  public static final CsvParser REGEX =
+      (file, bh) -> {
+        try (Stream<String> lines = Files.lines(file)) {
+          lines
+              .skip(1)
+              .map(
+                  l -> {
+                    if (l.endsWith(",")) {
+                      l += "0";
+                    }
+                    return l.trim().split(",(?=([^\\\"]*\\\"[^\\\"]*\\\")*[^\\\"]*$)", -1);
+                  })
+              .map(
+                  a ->
+                      new MovieAnalyzer.Movie(
+                          a[0],
+                          a[1].replace("\"", ""),
+                          Integer.parseInt(a[2]),
+                          a[3],
+                          Integer.parseInt(a[4].replace(" min", "")),
+                          a[5],
+                          Float.parseFloat(a[6]),
+                          a[7].replace("\"\"", "''").replace("\"", ""),
+                          Integer.parseInt(a[8].replace("", "0")),
+                          a[9],
+                          a[10],
+                          a[11],
+                          a[12],
+                          a[13],
+                          Integer.parseInt(a[14]),
+                          Integer.parseInt(a[15].replace(",", "").replace("\"", ""))))
+              .forEach(bh::consume);
+        }
+      };
+
+  public static final CsvParser TOKENIZER =
+      (file, bh) -> {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+          bh.consume(MovieAnalyzer.read(reader));
+        }
+      };
+
+  /** Byte scan of the memory-mapped file, skipping link and overview text. */
+  public static final CsvParser MAPPED = (file, bh) -> bh.consume(MappedCsvLoader.load(file, false));
+
+  public static final CsvParser MAPPED_TEXT =
+      (file, bh) -> bh.consume(MappedCsvLoader.load(file, true));
+
+  /** Opens a binary snapshot of the file, which the first call writes. */
+  public static final CsvParser SNAPSHOT =
+      (file, bh) -> {
+        Path snapshot = SNAPSHOTS.get(file);
+        if (snapshot == null) {
+          snapshot = Files.createTempFile("imdb_", ".snapshot");
+          snapshot.toFile().deleteOnExit();
+          MovieSnapshot.save(MappedCsvLoader.load(file, false), snapshot, file);
+          SNAPSHOTS.put(file, snapshot);
+        }
+        bh.consume(MovieSnapshot.open(snapshot, file, false));
+      };
+
+  private CsvParsers() {}
+}
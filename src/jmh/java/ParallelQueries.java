@@ -0,0 +1,85 @@
+import bench.ParallelQuery;
+import bench.SyntheticImdb;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+/**
+ * Queries measured by {@code bench.ParallelBenchmark}. Counting and ranking queries drop the totals
+ * before each invocation, so they time the parallel scan rather than a lookup of its kept result.
+ * Searches run against an index built once, as they do after the first search of a data set.
+ */
+public final class ParallelQueries {
+
+  public static final ParallelQuery YEAR_COUNT = scanning(MovieAnalyzer::getMovieCountByYear);
+
+  public static final ParallelQuery GENRE_COUNT = scanning(MovieAnalyzer::getMovieCountByGenre);
+
+  /** Copies the map so that every pair key is actually built. */
+  public static final ParallelQuery CO_STARS =
+      scanning(analyzer -> new HashMap<>(analyzer.getCoStarCount()));
+
+  public static final ParallelQuery TOP_MOVIES_RUNTIME =
+      (rows, threads) -> {
+        MovieAnalyzer analyzer = analyzer(SyntheticMovies.dataset(rows, 42), threads);
+        return () -> analyzer.getTopMovies(10, "runtime");
+      };
+
+  public static final ParallelQuery TOP_STARS_RATING =
+      scanning(analyzer -> analyzer.getTopStars(10, "rating"));
+
+  public static final ParallelQuery TOP_STARS_GROSS =
+      scanning(analyzer -> analyzer.getTopStars(10, "gross"));
+
+  public static final ParallelQuery SEARCH =
+      (rows, threads) -> {
+        MovieAnalyzer analyzer = analyzer(SyntheticMovies.dataset(rows, 42), threads);
+        return () -> analyzer.searchMovies("Drama", 8.0f, 150);
+      };
+
+  /** An interactive search returning a handful of titles. */
+  public static final ParallelQuery SEARCH_SELECTIVE =
+      (rows, threads) -> {
+        MovieAnalyzer analyzer = analyzer(SyntheticMovies.dataset(rows, 42), threads);
+        return () -> analyzer.searchMovies("Drama", 9.9f, 61);
+      };
+
+  /** Cold load of a CSV file of {@code rows} records, split into one byte range per thread. */
+  public static final ParallelQuery LOAD =
+      (rows, threads) -> {
+        Path file;
+        try {
+          file = SyntheticImdb.write(rows);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        return () -> {
+          try {
+            return MappedCsvLoader.load(file, false, pool);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        };
+      };
+
+  private ParallelQueries() {}
+
+  private static ParallelQuery scanning(Function<MovieAnalyzer, Object> query) {
+    return (rows, threads) -> {
+      MovieDataset d = SyntheticMovies.dataset(rows, 42);
+      MovieAnalyzer analyzer = analyzer(d, threads);
+      return () -> {
+        SyntheticMovies.dropTotals(d);
+        return query.apply(analyzer);
+      };
+    };
+  }
+
+  private static MovieAnalyzer analyzer(MovieDataset d, int threads) {
+    return MovieAnalyzer.builder(d).parallelism(threads).build();
+  }
+}
@@ -0,0 +1,78 @@
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Scans measured by {@code bench.ScanBenchmark}. Each constant maps a row count to a scan over a
+ * synthetic data set of that size: the search filter and the per-star sums of {@code getTopStars},
+ * either in blocks through {@link ScanKernels} or one row at a time, as they were before.
+ */
+public final class ScanQueries {
+
+  /** Counts the movies of one genre rated at least 8.0 and running at most 150 minutes. */
+  public static final IntFunction<Supplier<Object>> SEARCH_SCALAR =
+      rows -> {
+        MovieDataset d = SyntheticMovies.dataset(rows, 42);
+        int[] listed = SearchIndex.listsNaming(d, d.genres.find("Drama"));
+        return () -> {
+          int matches = 0;
+          for (int r = 0; r < d.size; r++) {
+            if (d.rating.get(r) >= 8.0f
+                && d.runtime.get(r) <= 150
+                && listed[d.genreList.get(r)] != 0) {
+              matches++;
+            }
+          }
+          return matches;
+        };
+      };
+
+  public static final IntFunction<Supplier<Object>> SEARCH_BLOCKED =
+      rows -> {
+        MovieDataset d = SyntheticMovies.dataset(rows, 42);
+        SearchIndex index = d.searchIndex();
+        int[] listed = SearchIndex.listsNaming(d, d.genres.find("Drama"));
+        int[] ranks = new int[d.size];
+        return () -> index.scan(d, listed, 8.0f, 150, ranks);
+      };
+
+  /** Sums every metric per star one row at a time, through each column's {@code get}. */
+  public static final IntFunction<Supplier<Object>> STAR_SUMS_SCALAR =
+      rows -> {
+        MovieDataset d = SyntheticMovies.dataset(rows, 42);
+        return () -> {
+          int ids = d.people.size();
+          int[] movies = new int[ids];
+          double[] ratingSum = new double[ids];
+          long[] grossSum = new long[ids];
+          int[] grossed = new int[ids];
+          long[] votesSum = new long[ids];
+          long[] scoreSum = new long[ids];
+          int[] scored = new int[ids];
+          for (IntColumn column : d.stars) {
+            for (int r = 0; r < d.size; r++) {
+              int id = column.get(r);
+              movies[id]++;
+              ratingSum[id] += d.rating.get(r);
+              if (d.gross.get(r) != 0) {
+                grossed[id]++;
+                grossSum[id] += d.gross.get(r);
+              }
+              votesSum[id] += d.votes.get(r);
+              if (d.score.get(r) != 0) {
+                scored[id]++;
+                scoreSum[id] += d.score.get(r);
+              }
+            }
+          }
+          return grossSum;
+        };
+      };
+
+  public static final IntFunction<Supplier<Object>> STAR_SUMS_BLOCKED =
+      rows -> {
+        MovieDataset d = SyntheticMovies.dataset(rows, 42);
+        return () -> EntityStats.build(d, MovieAnalyzer.Entity.STAR, null);
+      };
+
+  private ScanQueries() {}
+}
@@ -0,0 +1,49 @@
+import bench.SyntheticImdb;
+
+/**
+ * Builds large in-memory data sets directly from {@link SyntheticImdb}'s movies, without the cost
+ * of writing and parsing a CSV. The rows equal what loading the generator's file would give.
+ */
+final class SyntheticMovies {
+
+  private SyntheticMovies() {}
+
+  /** Returns {@code rows} movies generated from {@code seed}. */
+  static MovieDataset dataset(int rows, long seed) {
+    SyntheticImdb movies = new SyntheticImdb(rows, seed);
+    MovieDataset.Builder builder = new MovieDataset.Builder();
+    for (int i = 0; i < rows; i++) {
+      movies.next();
+      // Escaped quotes are kept as two characters, as they are when the file is loaded.
+      String overview = movies.overview.replace("\"", "''");
+      builder.add(
+          movies.link,
+          movies.title,
+          movies.year,
+          movies.certificate,
+          movies.runtime,
+          movies.genre,
+          movies.rating,
+          overview,
+          overview.length(),
+          movies.score,
+          movies.director,
+          movies.stars[0],
+          movies.stars[1],
+          movies.stars[2],
+          movies.stars[3],
+          movies.votes,
+          movies.gross);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Drops the totals, star sums and rankings that earlier queries built on {@code d}, so the next
+   * counting or ranking query scans every row as the first one on a freshly loaded data set does.
+   * Benchmarks call this before each invocation; otherwise all but the first would time a lookup.
+   */
+  static void dropTotals(MovieDataset d) {
+    d.totals = null;
+  }
+}
@@ -0,0 +1,82 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Top-k strategies measured by {@code bench.TopKBenchmark}. Each constant maps a row count to a
+ * query over a synthetic data set of that size, taking k and returning the ranked names.
+ */
+public final class TopKQueries {
+
+  public static final IntFunction<IntFunction<List<String>>> MOVIES_BY_RUNTIME =
+      rows -> {
+        MovieAnalyzer analyzer = MovieAnalyzer.builder(SyntheticMovies.dataset(rows, 42)).build();
+        return k -> analyzer.getTopMovies(k, "runtime");
+      };
+
+  /** Sorts every row and keeps the first k, as getTopMovies did before top-k selection. */
+  public static final IntFunction<IntFunction<List<String>>> MOVIES_BY_RUNTIME_FULL_SORT =
+      rows -> {
+        MovieDataset d = SyntheticMovies.dataset(rows, 42);
+        return k -> {
+          Integer[] order = new Integer[d.size];
+          Arrays.setAll(order, r -> r);
+          Arrays.sort(
+              order,
+              Comparator.comparingInt((Integer r) -> d.runtime.get(r))
+                  .reversed()
+                  .thenComparing(r -> d.title.get(r)));
+          List<String> top = new ArrayList<>();
+          for (int i = 0; i < k; i++) {
+            top.add(d.title.get(order[i]));
+          }
+          return top;
+        };
+      };
+
+  /** Sums and ranks the stars on every invocation, as the full sort below does. */
+  public static final IntFunction<IntFunction<List<String>>> STARS_BY_RATING =
+      rows -> {
+        MovieDataset d = SyntheticMovies.dataset(rows, 42);
+        MovieAnalyzer analyzer = MovieAnalyzer.builder(d).build();
+        return k -> {
+          SyntheticMovies.dropTotals(d);
+          return analyzer.getTopStars(k, "rating");
+        };
+      };
+
+  /** Sorts every star by average rating and keeps the first k. */
+  public static final IntFunction<IntFunction<List<String>>> STARS_BY_RATING_FULL_SORT =
+      rows -> {
+        MovieDataset d = SyntheticMovies.dataset(rows, 42);
+        return k -> {
+          int[] appearances = new int[d.people.size()];
+          double[] ratingSum = new double[d.people.size()];
+          for (int r = 0; r < d.size; r++) {
+            for (IntColumn column : d.stars) {
+              appearances[column.get(r)]++;
+              ratingSum[column.get(r)] += d.rating.get(r);
+            }
+          }
+          List<Integer> stars = new ArrayList<>();
+          for (int star = 0; star < appearances.length; star++) {
+            if (appearances[star] > 0) {
+              stars.add(star);
+            }
+          }
+          stars.sort(
+              Comparator.comparingDouble((Integer star) -> ratingSum[star] / appearances[star])
+                  .reversed()
+                  .thenComparing(d.people::get));
+          List<String> top = new ArrayList<>();
+          for (int i = 0; i < k; i++) {
+            top.add(d.people.get(stars.get(i)));
+          }
+          return top;
+        };
+      };
+
+  private TopKQueries() {}
+}
@@ -0,0 +1,12 @@
+package bench;
+
+import java.util.function.Supplier;
+
+public interface AnalyzerQuery {
+
+  /**
+   * Prepares the query over {@code dataset}: the name of a CSV file in {@code resources}, or a row
+   * count for a generated data set of that size.
+   */
+  Supplier<Object> prepare(String dataset);
+}
@@ -0,0 +1,11 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import org.openjdk.jmh.infra.Blackhole;
+
+public interface CsvParser {
+
+  /** Parses every record of {@code file} after the header, consuming one row object per record. */
+  void parse(Path file, Blackhole bh) throws IOException;
+}
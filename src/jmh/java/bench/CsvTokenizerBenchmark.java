@@ -0,0 +1,50 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the look-ahead regex split the analyzer used to parse with the CSV tokenizer, the
+ * memory-mapped byte loader and opening a binary snapshot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class CsvTokenizerBenchmark {
+
+  @Param({"1000000"})
+  public int rows;
+
+  @Param({"REGEX", "TOKENIZER", "MAPPED", "MAPPED_TEXT", "SNAPSHOT"})
+  public String parser;
+
+  private Path file;
+  private CsvParser target;
+
+  @Setup
+  public void setUp() throws IOException {
+    file = SyntheticImdb.write(rows);
+    target = Targets.lookup("CsvParsers", parser, CsvParser.class);
+  }
+
+  @Benchmark
+  public void parse(Blackhole bh) throws IOException {
+    target.parse(file, bh);
+  }
+}
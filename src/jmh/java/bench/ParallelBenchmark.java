@@ -0,0 +1,56 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures how loading and each query scale with the analyzer's parallelism. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = "-Xmx3g")
+public class ParallelBenchmark {
+
+  @Param({"2000000"})
+  public int rows;
+
+  @Param({"1", "2", "4", "8", "16", "32"})
+  public int threads;
+
+  @Param({
+    "YEAR_COUNT",
+    "GENRE_COUNT",
+    "CO_STARS",
+    "TOP_MOVIES_RUNTIME",
+    "TOP_STARS_RATING",
+    "TOP_STARS_GROSS",
+    "SEARCH",
+    "SEARCH_SELECTIVE",
+    "LOAD"
+  })
+  public String query;
+
+  private Supplier<Object> target;
+
+  @Setup
+  public void setUp() {
+    target = Targets.lookup("ParallelQueries", query, ParallelQuery.class).prepare(rows, threads);
+  }
+
+  @Benchmark
+  public Object run() {
+    return target.get();
+  }
+}
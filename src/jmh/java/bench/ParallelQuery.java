@@ -0,0 +1,9 @@
+package bench;
+
+import java.util.function.Supplier;
+
+public interface ParallelQuery {
+
+  /** Prepares the query over a data set of {@code rows} rows, split across {@code threads}. */
+  Supplier<Object> prepare(int rows, int threads);
+}
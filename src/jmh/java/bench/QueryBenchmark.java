@@ -0,0 +1,57 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures loading and every public query of the analyzer, on the bundled file and on generated
+ * data sets. The 10M row data sets need most of the forked JVM's heap; pass {@code -p dataset=...}
+ * to leave them out on smaller machines.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx8g")
+public class QueryBenchmark {
+
+  @Param({"imdb_top_500", "100000", "1000000", "10000000"})
+  public String dataset;
+
+  @Param({
+    "LOAD",
+    "YEAR_COUNT",
+    "GENRE_COUNT",
+    "CO_STARS",
+    "TOP_MOVIES_RUNTIME",
+    "TOP_MOVIES_OVERVIEW",
+    "TOP_STARS_RATING",
+    "TOP_STARS_GROSS",
+    "SEARCH"
+  })
+  public String query;
+
+  private Supplier<Object> target;
+
+  @Setup
+  public void setUp() {
+    target = Targets.lookup("AnalyzerQueries", query, AnalyzerQuery.class).prepare(dataset);
+  }
+
+  @Benchmark
+  public Object run() {
+    return target.get();
+  }
+}
@@ -0,0 +1,69 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the block scan kernels with row-at-a-time scans. Besides scans per second, JMH reports
+ * the {@code rows} counter as rows scanned per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = "-Xmx3g")
+public class ScanBenchmark {
+
+  @Param({"5000000"})
+  public int rows;
+
+  @Param({
+    "SEARCH_SCALAR",
+    "SEARCH_BLOCKED",
+    "STAR_SUMS_SCALAR",
+    "STAR_SUMS_BLOCKED"
+  })
+  public String query;
+
+  private Supplier<Object> target;
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class Scanned {
+    public long rows;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      rows = 0;
+    }
+  }
+
+  @Setup
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    IntFunction<Supplier<Object>> factory =
+        Targets.lookup("ScanQueries", query, IntFunction.class);
+    target = factory.apply(rows);
+  }
+
+  @Benchmark
+  public Object scan(Scanned scanned) {
+    scanned.rows += rows;
+    return target.get();
+  }
+}
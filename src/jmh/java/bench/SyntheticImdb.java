@@ -0,0 +1,294 @@
+package bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Deterministic generator of IMDB-shaped movies, for scale testing at any row count. Records follow
+ * the schema and quirks of {@code resources/imdb_top_500.csv}: quoted genre lists, poster links
+ * with embedded commas, {@code ""} escapes in overviews, empty Meta_score and Gross fields, and
+ * gross values written as {@code "28,341,469"}. People, genres and certificates are drawn from
+ * Zipf distributions, so a few stars appear in many movies and most in one or two.
+ *
+ * <p>The same seed always yields the same movies. Run {@link #main} to write a file:
+ *
+ * <pre>java bench.SyntheticImdb movies.csv 10000000 [seed]</pre>
+ */
+public final class SyntheticImdb {
+
+  static final String HEADER =
+      "Poster_Link,Series_Title,Released_Year,Certificate,Runtime,Genre,IMDB_Rating,Overview,"
+          + "Meta_score,Director,Star1,Star2,Star3,Star4,No_of_Votes,Gross";
+
+  private static final String[] GENRES = {
+    "Drama", "Comedy", "Crime", "Adventure", "Action", "Thriller", "Romance", "Biography",
+    "Mystery", "Animation", "Sci-Fi", "Fantasy", "History", "Family", "War", "Music", "Horror",
+    "Western", "Film-Noir", "Sport", "Musical"
+  };
+  private static final String[] CERTIFICATES = {
+    "U", "A", "UA", "R", "", "PG-13", "PG", "Passed", "G", "Approved", "TV-PG", "GP", "TV-14",
+    "U/A", "16", "TV-MA", "Unrated"
+  };
+  private static final String[] FIRST_NAMES = {
+    "James", "Mary", "John", "Anna", "Robert", "Linda", "Michael", "Sofia", "William", "Elena",
+    "David", "Yuki", "Richard", "Chiara", "Joseph", "Amira", "Thomas", "Ingrid", "Charles", "Mei",
+    "Daniel", "Priya", "Matthew", "Olga", "Akira", "Lucia", "Kenji", "Fatima", "Pierre", "Aisha",
+    "Hans", "Nadia", "Luis", "Greta", "Omar", "Ines", "Ravi", "Hana", "Sergei", "Leila"
+  };
+  private static final String[] LAST_NAMES = {
+    "Smith", "Johnson", "Kurosawa", "Garcia", "Miller", "Rossi", "Bergman", "Kapoor", "Nolan",
+    "Dubois", "Kim", "Novak", "Hughes", "Tanaka", "Moreau", "Lopez", "Fischer", "Sato", "Wilson",
+    "Ivanova", "Chen", "Ahmed", "Kowalski", "Silva", "Larsen", "Okafor", "Petrov", "Nguyen",
+    "Romano", "Schulz", "Haddad", "Jensen", "Costa", "Murphy", "Yilmaz", "Park", "Walsh",
+    "Varga", "Mendes", "Khan"
+  };
+  private static final String[] WORDS = {
+    "the", "a", "young", "man", "woman", "family", "war", "city", "love", "secret", "journey",
+    "past", "friends", "detective", "king", "story", "life", "world", "night", "after", "before",
+    "must", "finds", "becomes", "struggles", "small", "town", "dark", "lost", "new", "old", "girl",
+    "boy", "father", "mother", "son", "daughter", "life", "death", "revenge", "escape", "dream",
+    "home", "brother", "sister", "truth", "power", "hope", "with", "against", "through", "while"
+  };
+  private static final String[] TITLE_WORDS = {
+    "Last", "Night", "City", "Dream", "River", "Silent", "King", "Road", "Star", "Heart", "Shadow",
+    "Empire", "Garden", "Winter", "Summer", "Blood", "Glory", "Ghost", "Island", "Storm", "Light",
+    "Stranger", "Seven", "Wild", "Golden", "Lost", "Forest", "Song", "Fire", "Iron", "Moon", "Sea"
+  };
+
+  /** Movies per person; the real file has about one distinct star per three star credits. */
+  private static final int MOVIES_PER_PERSON = 2;
+
+  private final Random random;
+  private final Zipf people;
+  private final Zipf genres = new Zipf(GENRES.length, 1.1);
+  private final Zipf certificates = new Zipf(CERTIFICATES.length, 1.0);
+  private final StringBuilder text = new StringBuilder();
+
+  // Fields of the movie the last call to next() generated.
+  public String link;
+  public String title;
+  public int year;
+  public String certificate;
+  public int runtime;
+  public String genre;
+  public float rating;
+  /** Overview text, with quotes unescaped. */
+  public String overview;
+  /** 0 when the movie has no Meta_score. */
+  public int score;
+  public String director;
+  public final String[] stars = new String[4];
+  public int votes;
+  /** 0 when the movie has no Gross figure. */
+  public long gross;
+
+  /** Generates movies for a data set of about {@code rows} rows, whose size sets the cast. */
+  public SyntheticImdb(int rows, long seed) {
+    this.random = new Random(seed);
+    this.people = new Zipf(Math.max(16, rows / MOVIES_PER_PERSON), 0.9);
+  }
+
+  /** Writes a temporary CSV of {@code rows} movies generated from a fixed seed. */
+  public static Path write(int rows) throws IOException {
+    return write(rows, 42);
+  }
+
+  public static Path write(int rows, long seed) throws IOException {
+    Path out = Files.createTempFile("imdb_" + rows + "_", ".csv");
+    out.toFile().deleteOnExit();
+    try (Writer writer = Files.newBufferedWriter(out, StandardCharsets.UTF_8)) {
+      write(writer, rows, seed);
+    }
+    return out;
+  }
+
+  /** Writes the header followed by {@code rows} movies generated from {@code seed}. */
+  public static void write(Writer out, int rows, long seed) throws IOException {
+    SyntheticImdb movies = new SyntheticImdb(rows, seed);
+    out.write(HEADER);
+    out.write('\n');
+    StringBuilder line = new StringBuilder(512);
+    for (int i = 0; i < rows; i++) {
+      movies.next();
+      line.setLength(0);
+      movies.appendCsv(line);
+      out.append(line);
+    }
+  }
+
+  /** Moves on to the next movie. */
+  public void next() {
+    link =
+        "https://m.media-amazon.com/images/M/MV5B"
+            + Long.toString(random.nextLong() & Long.MAX_VALUE, 36)
+            + "._V1_UX67_CR0,0,67,98_AL_.jpg";
+    title = title();
+    // Skewed towards recent years, as the real list is.
+    year = Math.max(1920, 2020 - (int) Math.abs(random.nextGaussian() * 28));
+    certificate = CERTIFICATES[certificates.next(random)];
+    runtime = Math.max(45, Math.min(321, (int) (123 + random.nextGaussian() * 28)));
+    genre = genre();
+    rating = (76 + Math.min(17, (int) (-Math.log(1 - random.nextDouble()) * 3))) / 10f;
+    overview = overview();
+    score = random.nextInt(100) < 16 ? 0 : 28 + random.nextInt(73);
+    director = person();
+    for (int k = 0; k < stars.length; k++) {
+      String star;
+      do {
+        star = person();
+      } while (star.equals(director) || Arrays.asList(stars).subList(0, k).contains(star));
+      stars[k] = star;
+    }
+    votes = 25_000 + (int) Math.min(2_300_000, Math.exp(11 + random.nextGaussian() * 1.2));
+    gross =
+        random.nextInt(100) < 17
+            ? 0
+            : 1 + (long) Math.min(936_662_225, Math.exp(16.5 + random.nextGaussian() * 2));
+  }
+
+  /** Appends the current movie as one CSV record, line break included. */
+  public void appendCsv(StringBuilder line) {
+    field(line, link).append(',');
+    field(line, title).append(',');
+    line.append(year).append(',');
+    field(line, certificate).append(',');
+    line.append(runtime).append(" min,");
+    field(line, genre).append(',');
+    line.append(rating).append(',');
+    field(line, overview).append(',');
+    if (score != 0) {
+      line.append(score);
+    }
+    line.append(',');
+    field(line, director).append(',');
+    for (String star : stars) {
+      field(line, star).append(',');
+    }
+    line.append(votes).append(',');
+    if (gross != 0) {
+      line.append('"');
+      String digits = Long.toString(gross);
+      for (int i = 0; i < digits.length(); i++) {
+        if (i > 0 && (digits.length() - i) % 3 == 0) {
+          line.append(',');
+        }
+        line.append(digits.charAt(i));
+      }
+      line.append('"');
+    }
+    line.append('\n');
+  }
+
+  private static StringBuilder field(StringBuilder line, String value) {
+    if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+      return line.append(value);
+    }
+    return line.append('"').append(value.replace("\"", "\"\"")).append('"');
+  }
+
+  private String title() {
+    text.setLength(0);
+    if (random.nextInt(4) == 0) {
+      text.append("The ");
+    }
+    int words = 1 + random.nextInt(3);
+    for (int w = 0; w < words; w++) {
+      if (w > 0) {
+        text.append(' ');
+      }
+      text.append(TITLE_WORDS[random.nextInt(TITLE_WORDS.length)]);
+    }
+    int kind = random.nextInt(20);
+    if (kind == 0) {
+      text.append(", Part ").append(2 + random.nextInt(3));
+    } else if (kind == 1) {
+      text.append(": ").append(TITLE_WORDS[random.nextInt(TITLE_WORDS.length)]);
+    }
+    return text.toString();
+  }
+
+  /** One to three distinct genres in alphabetical order, as the real lists are written. */
+  private String genre() {
+    String[] picked = new String[1 + Math.min(2, (int) (-Math.log(1 - random.nextDouble()) * 1.2))];
+    int n = 0;
+    while (n < picked.length) {
+      String g = GENRES[genres.next(random)];
+      if (!Arrays.asList(picked).subList(0, n).contains(g)) {
+        picked[n++] = g;
+      }
+    }
+    Arrays.sort(picked);
+    return String.join(", ", picked);
+  }
+
+  private String overview() {
+    text.setLength(0);
+    int words = 12 + random.nextInt(30);
+    int quoted = random.nextInt(20) == 0 ? random.nextInt(words - 2) : -1;
+    for (int w = 0; w < words; w++) {
+      String word = WORDS[random.nextInt(WORDS.length)];
+      if (w == 0) {
+        text.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+        continue;
+      }
+      text.append(w % 9 == 0 ? ", " : " ");
+      if (w == quoted) {
+        text.append('"').append(word).append(' ');
+        text.append(WORDS[random.nextInt(WORDS.length)]).append('"');
+      } else {
+        text.append(word);
+      }
+    }
+    return text.append('.').toString();
+  }
+
+  private String person() {
+    int id = people.next(random);
+    int first = id % FIRST_NAMES.length;
+    int last = id / FIRST_NAMES.length % LAST_NAMES.length;
+    int generation = id / (FIRST_NAMES.length * LAST_NAMES.length);
+    String name = FIRST_NAMES[first] + " " + LAST_NAMES[last];
+    return generation == 0 ? name : name + " " + (generation + 1);
+  }
+
+  /** Draws ranks 0..n-1 with probability proportional to 1 / (rank + 1)^exponent. */
+  private static final class Zipf {
+    private final double[] cumulative;
+
+    Zipf(int n, double exponent) {
+      cumulative = new double[n];
+      double sum = 0;
+      for (int rank = 0; rank < n; rank++) {
+        sum += 1 / Math.pow(rank + 1, exponent);
+        cumulative[rank] = sum;
+      }
+      for (int rank = 0; rank < n; rank++) {
+        cumulative[rank] /= sum;
+      }
+    }
+
+    int next(Random random) {
+      int rank = Arrays.binarySearch(cumulative, random.nextDouble());
+      return Math.min(cumulative.length - 1, rank < 0 ? -rank - 1 : rank);
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.err.println("usage: SyntheticImdb <file> <rows> [seed]");
+      System.exit(2);
+    }
+    long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+    try (BufferedWriter writer =
+        Files.newBufferedWriter(Paths.get(args[0]), StandardCharsets.UTF_8)) {
+      write(writer, Integer.parseInt(args[1]), seed);
+    }
+  }
+}
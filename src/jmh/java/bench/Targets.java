@@ -0,0 +1,19 @@
+package bench;
+
+/**
+ * JMH only accepts benchmarks in a named package, and those cannot reference the analyzer classes
+ * in the default package. Default-package adapters therefore expose the code under test as
+ * constants implementing interfaces from this package, resolved once per trial.
+ */
+final class Targets {
+
+  private Targets() {}
+
+  static <T> T lookup(String owner, String name, Class<T> type) {
+    try {
+      return type.cast(Class.forName(owner).getField(name).get(null));
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("No benchmark target " + owner + "." + name, e);
+    }
+  }
+}
@@ -0,0 +1,55 @@
+package bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Compares bounded-heap top-k selection with sorting every candidate. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = "-Xmx3g")
+public class TopKBenchmark {
+
+  @Param({"5000000"})
+  public int rows;
+
+  @Param({"10"})
+  public int k;
+
+  @Param({
+    "MOVIES_BY_RUNTIME",
+    "MOVIES_BY_RUNTIME_FULL_SORT",
+    "STARS_BY_RATING",
+    "STARS_BY_RATING_FULL_SORT"
+  })
+  public String query;
+
+  private IntFunction<List<String>> target;
+
+  @Setup
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    IntFunction<IntFunction<List<String>>> factory =
+        Targets.lookup("TopKQueries", query, IntFunction.class);
+    target = factory.apply(rows);
+  }
+
+  @Benchmark
+  public List<String> top() {
+    return target.apply(k);
+  }
+}
@@ -0,0 +1,89 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * What an analyzer with metrics enabled records: a latency histogram and allocated bytes per
+ * public method, and totals over loads and aggregation. Analyzers without metrics hold no instance
+ * and skip every call, so the cost when disabled is one null check per query.
+ */
+final class AnalyzerMetrics {
+
+  /** Null when the JVM cannot count the bytes a thread allocates. */
+  private static final com.sun.management.ThreadMXBean ALLOCATIONS = allocationCounter();
+
+  private final Map<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+  private final Map<String, LongAdder> allocated = new ConcurrentHashMap<>();
+  private final LatencyHistogram loads = new LatencyHistogram();
+  private final LongAdder rowsLoaded = new LongAdder();
+  private final LongAdder rowsScanned = new LongAdder();
+  private final LongAdder bytesRead = new LongAdder();
+
+  private static com.sun.management.ThreadMXBean allocationCounter() {
+    try {
+      ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+      if (threads instanceof com.sun.management.ThreadMXBean) {
+        com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) threads;
+        if (counter.isThreadAllocatedMemorySupported()
+            && counter.isThreadAllocatedMemoryEnabled()) {
+          return counter;
+        }
+      }
+    } catch (LinkageError e) {
+      // Not a HotSpot-based JVM.
+    }
+    return null;
+  }
+
+  /** Bytes allocated so far by the calling thread, or 0 if the JVM does not count them. */
+  static long allocatedBytes() {
+    if (ALLOCATIONS == null) {
+      return 0;
+    }
+    return ALLOCATIONS.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /**
+   * Records one call of {@code method}. Allocations are those of the calling thread, so work done
+   * on the analyzer's pool is not included.
+   */
+  void query(String method, long nanos, long bytes) {
+    latencies.computeIfAbsent(method, m -> new LatencyHistogram()).record(nanos);
+    allocated.computeIfAbsent(method, m -> new LongAdder()).add(bytes);
+  }
+
+  /** Records reading {@code rows} rows from {@code bytes} bytes of a file. */
+  void load(long nanos, long rows, long bytes) {
+    loads.record(nanos);
+    rowsLoaded.add(rows);
+    bytesRead.add(bytes);
+  }
+
+  /** Records that a query or aggregate visited {@code rows} rows of the data set. */
+  void scanned(long rows) {
+    rowsScanned.add(rows);
+  }
+
+  MovieAnalyzer.Metrics snapshot() {
+    Map<String, MovieAnalyzer.QueryStats> queries = new TreeMap<>();
+    latencies.forEach(
+        (method, histogram) -> queries.put(method, stats(histogram.copy(), allocated.get(method))));
+    return new MovieAnalyzer.Metrics(
+        queries, stats(loads.copy(), null), rowsLoaded.sum(), rowsScanned.sum(), bytesRead.sum());
+  }
+
+  private static MovieAnalyzer.QueryStats stats(LatencyHistogram h, LongAdder bytes) {
+    long count = h.count();
+    return new MovieAnalyzer.QueryStats(
+        count,
+        count == 0 ? 0 : h.total() / count,
+        h.percentile(50),
+        h.percentile(90),
+        h.percentile(99),
+        h.max(),
+        bytes == null ? 0 : bytes.sum());
+  }
+}
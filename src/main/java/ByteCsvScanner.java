@@ -0,0 +1,248 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Quote-aware CSV scanner over a range of a byte buffer, typically a memory-mapped file. It only
+ * records where each field starts and ends. Text is decoded on request, and numbers are parsed
+ * straight from the bytes.
+ */
+final class ByteCsvScanner {
+
+  private final ByteBuffer buf;
+  private final int limit;
+  private final boolean endOfInput;
+  private int pos;
+
+  private int[] starts = new int[16];
+  private int[] ends = new int[16];
+  private boolean[] escaped = new boolean[16];
+  private int fieldCount;
+  private byte[] scratch = new byte[256];
+
+  /**
+   * Scans {@code buf} from {@code from} to {@code limit}. Unless {@code endOfInput} is set, a
+   * record that runs into {@code limit} is treated as incomplete and left unread.
+   */
+  ByteCsvScanner(ByteBuffer buf, int from, int limit, boolean endOfInput) {
+    this.buf = buf;
+    this.pos = from;
+    this.limit = limit;
+    this.endOfInput = endOfInput;
+  }
+
+  /** Position just past the last complete record read. */
+  int position() {
+    return pos;
+  }
+
+  boolean next() {
+    int p = pos;
+    while (p < limit && (buf.get(p) == '\n' || buf.get(p) == '\r')) {
+      p++;
+    }
+    if (p >= limit) {
+      pos = p;
+      return false;
+    }
+    fieldCount = 0;
+    while (true) {
+      int start;
+      int end;
+      boolean hasEscapes = false;
+      if (p < limit && buf.get(p) == '"') {
+        start = ++p;
+        while (true) {
+          if (p >= limit) {
+            return incomplete();
+          }
+          if (buf.get(p) == '"') {
+            if (p + 1 < limit && buf.get(p + 1) == '"') {
+              hasEscapes = true;
+              p += 2;
+              continue;
+            }
+            if (p + 1 >= limit && !endOfInput) {
+              return incomplete();
+            }
+            break;
+          }
+          p++;
+        }
+        end = p++;
+        while (p < limit && buf.get(p) != ',' && buf.get(p) != '\n') {
+          p++;
+        }
+      } else {
+        start = p;
+        while (p < limit && buf.get(p) != ',' && buf.get(p) != '\n') {
+          p++;
+        }
+        end = p;
+        if (end > start && (p < limit || endOfInput) && buf.get(end - 1) == '\r') {
+          end--;
+        }
+      }
+      if (p >= limit && !endOfInput) {
+        return incomplete();
+      }
+      addField(start, end, hasEscapes);
+      if (p >= limit || buf.get(p) == '\n') {
+        pos = Math.min(p + 1, limit);
+        return true;
+      }
+      p++; // Comma
+    }
+  }
+
+  int fieldCount() {
+    return fieldCount;
+  }
+
+  /** Decodes a field, collapsing escaped quotes. */
+  String text(int field) {
+    int length = copy(field, false);
+    return new String(scratch, 0, length, StandardCharsets.UTF_8);
+  }
+
+  /** Adds the field's bytes to {@code column} without decoding them, collapsing escaped quotes. */
+  void copyText(int field, TextColumn column) {
+    int length = copy(field, false);
+    column.add(scratch, 0, length);
+  }
+
+  /**
+   * Like {@link #copyText}, but writes each quote of the text as two apostrophes, the form in which
+   * overviews are kept.
+   */
+  void copyQuotedAsApostrophes(int field, TextColumn column) {
+    int length = copy(field, true);
+    column.add(scratch, 0, length);
+  }
+
+  /** Returns the field's text through {@code interner}, decoding each distinct value only once. */
+  String intern(int field, Utf8Interner interner) {
+    if (escaped[field]) {
+      return text(field);
+    }
+    return interner.intern(buf, starts[field], ends[field]);
+  }
+
+  /**
+   * Length in UTF-16 chars of the field as stored, with each escaped quote still counting as two
+   * characters, without decoding it.
+   */
+  int rawCharLength(int field) {
+    int length = 0;
+    for (int p = starts[field]; p < ends[field]; p++) {
+      int b = buf.get(p) & 0xFF;
+      if ((b & 0xC0) != 0x80) {
+        // Lead byte of a character; four-byte sequences become a surrogate pair.
+        length += b >= 0xF0 ? 2 : 1;
+      }
+    }
+    return length;
+  }
+
+  /** Parses the leading integer of a field like {@link CsvTokenizer#parseLong}. */
+  long parseLong(int field) {
+    int p = starts[field];
+    int end = ends[field];
+    while (p < end && buf.get(p) == ' ') {
+      p++;
+    }
+    if (p == end) {
+      return 0;
+    }
+    boolean negative = buf.get(p) == '-';
+    if (negative) {
+      p++;
+    }
+    int digits = 0;
+    long value = 0;
+    for (; p < end; p++) {
+      byte c = buf.get(p);
+      if (c >= '0' && c <= '9') {
+        value = value * 10 + (c - '0');
+        digits++;
+      } else if (c != ',' || digits == 0) {
+        break;
+      }
+    }
+    if (digits == 0) {
+      throw new NumberFormatException("Not a number: \"" + text(field) + "\"");
+    }
+    return negative ? -value : value;
+  }
+
+  int parseInt(int field) {
+    return Math.toIntExact(parseLong(field));
+  }
+
+  /** Parses a field like {@link CsvTokenizer#parseFloat}. */
+  float parseFloat(int field) {
+    int p = starts[field];
+    int end = ends[field];
+    if (p == end) {
+      return 0;
+    }
+    int mantissa = 0;
+    int scale = 1;
+    boolean fraction = false;
+    for (; p < end; p++) {
+      byte c = buf.get(p);
+      if (c >= '0' && c <= '9' && mantissa < 1_000_000) {
+        mantissa = mantissa * 10 + (c - '0');
+        if (fraction) {
+          scale *= 10;
+        }
+      } else if (c == '.' && !fraction) {
+        fraction = true;
+      } else {
+        return Float.parseFloat(text(field).trim());
+      }
+    }
+    return (float) mantissa / scale;
+  }
+
+  private boolean incomplete() {
+    fieldCount = 0;
+    return false;
+  }
+
+  private void addField(int start, int end, boolean hasEscapes) {
+    if (fieldCount == starts.length) {
+      starts = Arrays.copyOf(starts, fieldCount * 2);
+      ends = Arrays.copyOf(ends, fieldCount * 2);
+      escaped = Arrays.copyOf(escaped, fieldCount * 2);
+    }
+    starts[fieldCount] = start;
+    ends[fieldCount] = end;
+    escaped[fieldCount] = hasEscapes;
+    fieldCount++;
+  }
+
+  private int copy(int field, boolean apostrophes) {
+    int start = starts[field];
+    int length = ends[field] - start;
+    int capacity = apostrophes ? length * 2 : length;
+    if (scratch.length < capacity) {
+      scratch = new byte[Math.max(capacity, scratch.length * 2)];
+    }
+    int n = 0;
+    for (int p = start; p < start + length; p++) {
+      byte b = buf.get(p);
+      if (b == '"') {
+        if (escaped[field]) {
+          p++;
+        }
+        if (apostrophes) {
+          scratch[n++] = '\'';
+          b = '\'';
+        }
+      }
+      scratch[n++] = b;
+    }
+    return n;
+  }
+}
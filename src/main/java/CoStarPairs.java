@@ -0,0 +1,137 @@
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Counts how often two stars appear in the same movie. Each pair of star ids is packed into one
+ * long key, so counting never allocates; names are only looked up when the map view is read.
+ */
+final class CoStarPairs {
+
+  private final LongIntHashMap counts;
+
+  CoStarPairs() {
+    this(new LongIntHashMap());
+  }
+
+  private CoStarPairs(LongIntHashMap counts) {
+    this.counts = counts;
+  }
+
+  static long key(int star1, int star2) {
+    return star1 < star2 ? (long) star1 << 32 | star2 : (long) star2 << 32 | star1;
+  }
+
+  /** Counts the star pairs of rows {@code from} (inclusive) to {@code to} (exclusive). */
+  void add(MovieDataset d, int from, int to) {
+    IntColumn[] stars = d.stars;
+    int[] row = new int[MovieDataset.STARS];
+    for (int r = from; r < to; r++) {
+      for (int i = 0; i < MovieDataset.STARS; i++) {
+        row[i] = stars[i].get(r);
+      }
+      for (int i = 0; i < MovieDataset.STARS - 1; i++) {
+        for (int j = i + 1; j < MovieDataset.STARS; j++) {
+          counts.addTo(key(row[i], row[j]), 1);
+        }
+      }
+    }
+  }
+
+  /** Adds the counts of {@code other}, returning this instance. */
+  CoStarPairs merge(CoStarPairs other) {
+    counts.addAll(other.counts);
+    return this;
+  }
+
+  /** Returns an independent copy, for updating counts that a map view has already been given. */
+  CoStarPairs copy() {
+    return new CoStarPairs(counts.copy());
+  }
+
+  int size() {
+    return counts.size();
+  }
+
+  /**
+   * Returns a read-only view keyed by the two star names in alphabetical order, as {@code
+   * getCoStarCount} reports them.
+   */
+  Map<List<String>, Integer> asMap(StringDictionary people) {
+    return new AbstractMap<List<String>, Integer>() {
+      @Override
+      public Integer get(Object key) {
+        if (!(key instanceof List) || ((List<?>) key).size() != 2) {
+          return null;
+        }
+        List<?> names = (List<?>) key;
+        if (!(names.get(0) instanceof String) || !(names.get(1) instanceof String)) {
+          return null;
+        }
+        String a = (String) names.get(0);
+        String b = (String) names.get(1);
+        int idA = people.find(a);
+        int idB = people.find(b);
+        if (idA < 0 || idB < 0 || a.compareTo(b) > 0) {
+          return null;
+        }
+        int count = counts.get(key(idA, idB));
+        return count == 0 ? null : count;
+      }
+
+      @Override
+      public boolean containsKey(Object key) {
+        return get(key) != null;
+      }
+
+      @Override
+      public int size() {
+        return counts.size();
+      }
+
+      @Override
+      public Set<Entry<List<String>, Integer>> entrySet() {
+        return new AbstractSet<Entry<List<String>, Integer>>() {
+          @Override
+          public int size() {
+            return counts.size();
+          }
+
+          @Override
+          public Iterator<Entry<List<String>, Integer>> iterator() {
+            LongIntHashMap.Cursor cursor = counts.cursor();
+            return new Iterator<Entry<List<String>, Integer>>() {
+              private boolean ready;
+              private boolean more;
+
+              @Override
+              public boolean hasNext() {
+                if (!ready) {
+                  more = cursor.advance();
+                  ready = true;
+                }
+                return more;
+              }
+
+              @Override
+              public Entry<List<String>, Integer> next() {
+                if (!hasNext()) {
+                  throw new NoSuchElementException();
+                }
+                ready = false;
+                String a = people.get((int) (cursor.key() >>> 32));
+                String b = people.get((int) cursor.key());
+                List<String> pair = a.compareTo(b) <= 0 ? List.of(a, b) : List.of(b, a);
+                return new SimpleImmutableEntry<>(pair, cursor.value());
+              }
+            };
+          }
+        };
+      }
+    };
+  }
+}
@@ -0,0 +1,271 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes the rows of a data set to temporary files, a column per file and a batch at a time, and
+ * maps them back as one read-only data set. Used to turn a CSV larger than the heap into a
+ * snapshot: only the current batch is ever held on the heap. Closing deletes the files.
+ */
+final class ColumnSpill implements Closeable {
+
+  private final Path dir;
+  private final List<Column> files = new ArrayList<>();
+  private final Column year;
+  private final Column certificate;
+  private final Column runtime;
+  private final Column genreList;
+  private final Column rating;
+  private final Column overviewLength;
+  private final Column score;
+  private final Column director;
+  private final Column[] stars = new Column[MovieDataset.STARS];
+  private final Column votes;
+  private final Column gross;
+  private final Text title;
+  /** Null without link and overview text. */
+  private final Text link;
+  private final Text overview;
+
+  private int size;
+  /** The batch added last, whose dictionaries hold the strings of every batch. */
+  private MovieDataset last;
+
+  /** Creates the files in a new directory under {@code parent}. */
+  ColumnSpill(Path parent, boolean text) throws IOException {
+    this.dir = Files.createTempDirectory(parent, "spill");
+    this.year = column("year");
+    this.certificate = column("certificate");
+    this.runtime = column("runtime");
+    this.genreList = column("genreList");
+    this.rating = column("rating");
+    this.overviewLength = column("overviewLength");
+    this.score = column("score");
+    this.director = column("director");
+    for (int k = 0; k < stars.length; k++) {
+      stars[k] = column("star" + k);
+    }
+    this.votes = column("votes");
+    this.gross = column("gross");
+    this.title = new Text(column("title"), column("titleRefs"), column("titleLengths"));
+    this.link = text ? new Text(column("link"), column("linkRefs"), column("linkLengths")) : null;
+    this.overview =
+        text
+            ? new Text(column("overview"), column("overviewRefs"), column("overviewLengths"))
+            : null;
+  }
+
+  /**
+   * Writes the rows of {@code batch} after those of earlier batches, whose dictionaries it must
+   * share.
+   */
+  void add(MovieDataset batch) throws IOException {
+    for (int r = 0; r < batch.size; r++) {
+      title.add(batch.title.bytes(r));
+      if (link != null) {
+        link.add(batch.link.bytes(r));
+        overview.add(batch.overview.bytes(r));
+      }
+      year.ensure(4).putInt(batch.year.get(r));
+      certificate.ensure(4).putInt(batch.certificate.get(r));
+      runtime.ensure(2).putShort(batch.runtime.get(r));
+      genreList.ensure(4).putInt(batch.genreList.get(r));
+      rating.ensure(4).putFloat(batch.rating.get(r));
+      overviewLength.ensure(4).putInt(batch.overviewLength.get(r));
+      score.ensure(4).putInt(batch.score.get(r));
+      director.ensure(4).putInt(batch.director.get(r));
+      for (int k = 0; k < stars.length; k++) {
+        stars[k].ensure(4).putInt(batch.stars[k].get(r));
+      }
+      votes.ensure(4).putInt(batch.votes.get(r));
+      gross.ensure(8).putLong(batch.gross.get(r));
+    }
+    size += batch.size;
+    last = batch;
+  }
+
+  /** Maps every row added so far; the data set is valid until this spill is closed. */
+  MovieDataset build() throws IOException {
+    IntColumn[] starColumns = new IntColumn[stars.length];
+    for (int k = 0; k < stars.length; k++) {
+      starColumns[k] = new IntColumn(stars[k].map().asIntBuffer());
+    }
+    return new MovieDataset(
+        size,
+        link == null ? null : link.map(size),
+        new StringColumn(title.map(size)),
+        new IntColumn(year.map().asIntBuffer()),
+        new IntColumn(certificate.map().asIntBuffer()),
+        new ShortColumn(runtime.map().asShortBuffer()),
+        new IntColumn(genreList.map().asIntBuffer()),
+        new FloatColumn(rating.map().asFloatBuffer()),
+        overview == null ? null : overview.map(size),
+        new IntColumn(overviewLength.map().asIntBuffer()),
+        new IntColumn(score.map().asIntBuffer()),
+        new IntColumn(director.map().asIntBuffer()),
+        starColumns,
+        new IntColumn(votes.map().asIntBuffer()),
+        new LongColumn(gross.map().asLongBuffer()),
+        last.certificates,
+        last.genreLists,
+        last.genres,
+        last.genreStart,
+        last.genreIds,
+        last.people);
+  }
+
+  /** Deletes the files, or marks them for deletion at exit where mapped files cannot be deleted. */
+  @Override
+  public void close() throws IOException {
+    for (Column file : files) {
+      file.channel.close();
+      delete(file.path);
+    }
+    delete(dir);
+  }
+
+  /**
+   * Maps a new temporary file of {@code bytes} zeros for reading and writing, deleting it once
+   * mapped (at exit where mapped files cannot be deleted). The space lasts as long as the buffer.
+   */
+  static ByteBuffer scratch(long bytes) throws IOException {
+    Path file = Files.createTempFile("scratch", ".tmp");
+    try (FileChannel channel =
+        FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      return channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+    } finally {
+      delete(file);
+    }
+  }
+
+  private static void delete(Path path) {
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException e) {
+      path.toFile().deleteOnExit();
+    }
+  }
+
+  private Column column(String name) throws IOException {
+    Column column = new Column(dir.resolve(name));
+    files.add(column);
+    return column;
+  }
+
+  /** Buffered writer of one file, counting the bytes written. */
+  private static final class Column {
+    final Path path;
+    final FileChannel channel;
+    private final ByteBuffer buf = ByteBuffer.allocate(1 << 16);
+    private long written;
+
+    Column(Path path) throws IOException {
+      this.path = path;
+      this.channel =
+          FileChannel.open(
+              path,
+              StandardOpenOption.CREATE_NEW,
+              StandardOpenOption.READ,
+              StandardOpenOption.WRITE);
+    }
+
+    ByteBuffer ensure(int bytes) throws IOException {
+      if (buf.remaining() < bytes) {
+        flush();
+      }
+      written += bytes;
+      return buf;
+    }
+
+    void put(ByteBuffer bytes) throws IOException {
+      if (bytes.remaining() > buf.capacity()) {
+        flush();
+        written += bytes.remaining();
+        while (bytes.hasRemaining()) {
+          channel.write(bytes);
+        }
+      } else {
+        ensure(bytes.remaining()).put(bytes);
+      }
+    }
+
+    long written() {
+      return written;
+    }
+
+    /** Maps the whole file read-only. */
+    ByteBuffer map() throws IOException {
+      return map(0, written);
+    }
+
+    ByteBuffer map(long position, long bytes) throws IOException {
+      flush();
+      return channel.map(FileChannel.MapMode.READ_ONLY, position, bytes);
+    }
+
+    private void flush() throws IOException {
+      buf.flip();
+      while (buf.hasRemaining()) {
+        channel.write(buf);
+      }
+      buf.clear();
+    }
+  }
+
+  /** A text column: UTF-8 bytes in chunks laid out by {@link TextColumn.Chunks}. */
+  private static final class Text {
+    private final Column bytes;
+    private final Column refs;
+    private final Column lengths;
+    private final TextColumn.Chunks chunks = new TextColumn.Chunks();
+    /** Position of each chunk in {@link #bytes}. */
+    private long[] starts = new long[16];
+
+    Text(Column bytes, Column refs, Column lengths) {
+      this.bytes = bytes;
+      this.refs = refs;
+      this.lengths = lengths;
+    }
+
+    /** Adds a row holding {@code value}, or a null row for null. */
+    void add(ByteBuffer value) throws IOException {
+      if (value == null) {
+        refs.ensure(8).putLong(-1);
+        lengths.ensure(4).putInt(0);
+        return;
+      }
+      int length = value.remaining();
+      int count = chunks.count;
+      refs.ensure(8).putLong(chunks.place(length));
+      lengths.ensure(4).putInt(length);
+      if (chunks.count > count) {
+        if (count == starts.length) {
+          starts = Arrays.copyOf(starts, count * 2);
+        }
+        starts[count] = bytes.written();
+      }
+      bytes.put(value);
+    }
+
+    TextColumn map(int size) throws IOException {
+      ByteBuffer[] mapped = new ByteBuffer[chunks.count];
+      for (int c = 0; c < mapped.length; c++) {
+        long end = c + 1 < mapped.length ? starts[c + 1] : bytes.written();
+        mapped[c] = bytes.map(starts[c], end - starts[c]);
+      }
+      return new TextColumn(
+          mapped,
+          new LongColumn(refs.map().asLongBuffer()),
+          new IntColumn(lengths.map().asIntBuffer()),
+          size,
+          true);
+    }
+  }
+}
@@ -0,0 +1,180 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Quote-aware CSV reader that scans its input once. Each call to {@link #next()} decodes one record
+ * into a reusable buffer, unescaping quoted fields in place, and numeric fields are parsed straight
+ * from that buffer.
+ */
+final class CsvTokenizer implements Closeable {
+
+  private final Reader in;
+  private final char[] input = new char[1 << 16];
+  private int inputPos;
+  private int inputLimit;
+
+  private char[] record = new char[512];
+  private int[] starts = new int[16];
+  private int[] ends = new int[16];
+  private int fieldCount;
+
+  CsvTokenizer(Reader in) {
+    this.in = in;
+  }
+
+  /** Reads the next record, returning false once the input is exhausted. */
+  boolean next() throws IOException {
+    fieldCount = 0;
+    int length = 0;
+    int c = read();
+    while (c == '\n' || c == '\r') {
+      c = read();
+    }
+    if (c < 0) {
+      return false;
+    }
+    int start = 0;
+    boolean quoted = false;
+    while (true) {
+      if (quoted) {
+        if (c < 0) {
+          throw new IOException("Unterminated quoted field");
+        }
+        if (c == '"') {
+          c = read();
+          if (c != '"') {
+            quoted = false;
+            continue;
+          }
+        }
+      } else if (c == '"' && length == start) {
+        quoted = true;
+        c = read();
+        continue;
+      } else if (c == ',' || c == '\n' || c < 0) {
+        int end = length;
+        if (c != ',' && end > start && record[end - 1] == '\r') {
+          end--;
+        }
+        addField(start, end);
+        if (c != ',') {
+          return true;
+        }
+        start = length;
+        c = read();
+        continue;
+      }
+      if (length == record.length) {
+        record = Arrays.copyOf(record, length * 2);
+      }
+      record[length++] = (char) c;
+      c = read();
+    }
+  }
+
+  int fieldCount() {
+    return fieldCount;
+  }
+
+  int length(int field) {
+    return ends[field] - starts[field];
+  }
+
+  String text(int field) {
+    return new String(record, starts[field], length(field));
+  }
+
+  /**
+   * Parses the leading integer of a field, skipping thousands separators and ignoring any suffix,
+   * so {@code "28,341,469"} and {@code "142 min"} both parse. An empty field parses as 0.
+   */
+  long parseLong(int field) {
+    int pos = starts[field];
+    int end = ends[field];
+    while (pos < end && record[pos] == ' ') {
+      pos++;
+    }
+    if (pos == end) {
+      return 0;
+    }
+    boolean negative = record[pos] == '-';
+    if (negative) {
+      pos++;
+    }
+    int digits = 0;
+    long value = 0;
+    for (; pos < end; pos++) {
+      char c = record[pos];
+      if (c >= '0' && c <= '9') {
+        value = value * 10 + (c - '0');
+        digits++;
+      } else if (c != ',' || digits == 0) {
+        break;
+      }
+    }
+    if (digits == 0) {
+      throw new NumberFormatException("Not a number: \"" + text(field) + "\"");
+    }
+    return negative ? -value : value;
+  }
+
+  int parseInt(int field) {
+    return Math.toIntExact(parseLong(field));
+  }
+
+  /** Parses plain decimals such as {@code 8.6} directly and falls back to the JDK otherwise. */
+  float parseFloat(int field) {
+    int pos = starts[field];
+    int end = ends[field];
+    if (pos == end) {
+      return 0;
+    }
+    int mantissa = 0;
+    int scale = 1;
+    boolean fraction = false;
+    for (; pos < end; pos++) {
+      char c = record[pos];
+      if (c >= '0' && c <= '9' && mantissa < 1_000_000) {
+        mantissa = mantissa * 10 + (c - '0');
+        if (fraction) {
+          scale *= 10;
+        }
+      } else if (c == '.' && !fraction) {
+        fraction = true;
+      } else {
+        return Float.parseFloat(text(field).trim());
+      }
+    }
+    // Both operands are exact in float, so the quotient is the correctly rounded decimal value.
+    return (float) mantissa / scale;
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+
+  private void addField(int start, int end) {
+    if (fieldCount == starts.length) {
+      starts = Arrays.copyOf(starts, fieldCount * 2);
+      ends = Arrays.copyOf(ends, fieldCount * 2);
+    }
+    starts[fieldCount] = start;
+    ends[fieldCount] = end;
+    fieldCount++;
+  }
+
+  private int read() throws IOException {
+    if (inputPos == inputLimit) {
+      inputLimit = in.read(input, 0, input.length);
+      inputPos = 0;
+      if (inputLimit <= 0) {
+        inputLimit = 0;
+        return -1;
+      }
+    }
+    return input[inputPos++];
+  }
+}
@@ -0,0 +1,70 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Every entity of one kind in a data set version, best first by one metric, with the value each
+ * was ranked by. Sorted once from the version's {@link EntityStats}, so any number of top-k queries
+ * afterwards only copy the first {@code k} names.
+ *
+ * <p>An entity is ranked if any row names it, even when the metric counts none of its rows; such
+ * an entity ranks with a value of 0, as stars without a gross figure always have.
+ */
+final class EntityRanking {
+
+  private final StringDictionary names;
+  private final double[] values;
+  private final int[] ranked;
+
+  private EntityRanking(StringDictionary names, double[] values, int[] ranked) {
+    this.names = names;
+    this.values = values;
+    this.ranked = ranked;
+  }
+
+  static EntityRanking build(EntityStats stats, MovieAnalyzer.Metric metric) {
+    StringDictionary names = stats.names();
+    int ids = stats.rows.length;
+    double[] values = new double[ids];
+    int entities = 0;
+    for (int id = 0; id < ids; id++) {
+      if (stats.rows[id] > 0) {
+        values[id] = stats.value(id, metric);
+        entities++;
+      }
+    }
+    // A heap holding every entity sorts their ids without boxing them.
+    TopK all =
+        new TopK(
+            entities,
+            (a, b) -> {
+              int c = Double.compare(values[b], values[a]);
+              return c != 0 ? c : names.compare(a, b);
+            });
+    for (int id = 0; id < ids; id++) {
+      if (stats.rows[id] > 0) {
+        all.offer(id);
+      }
+    }
+    return new EntityRanking(names, values, all.result());
+  }
+
+  /** Names of the best {@code k} entities. */
+  List<String> top(int k) {
+    int n = Math.max(0, Math.min(k, ranked.length));
+    List<String> top = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      top.add(names.get(ranked[i]));
+    }
+    return top;
+  }
+
+  /** Ids of every ranked entity, best first. */
+  int[] ranking() {
+    return ranked;
+  }
+
+  /** The value entity {@code id} was ranked by. */
+  double value(int id) {
+    return values[id];
+  }
+}
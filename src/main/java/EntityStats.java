@@ -0,0 +1,220 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Per-entity sums of one kind of entity in one data set version: for every id, the rows naming it
+ * and the sums every {@link MovieAnalyzer.Metric} ranks by. Appends extend a copy from the new rows
+ * alone, so ranking an extended data set only sorts the entities again.
+ *
+ * <p>Sums of whole-number columns are kept in a {@code long} so large gross totals stay exact.
+ * Float ratings sum exactly in a double for any realistic number of rows, so merged partitions and
+ * appended versions give the same means as a single pass. Instances are never modified once
+ * published; each ranking is sorted on first request and kept.
+ */
+final class EntityStats {
+
+  final MovieAnalyzer.Entity entity;
+  private final StringDictionary names;
+
+  final int[] rows;
+  final double[] ratingSum;
+  /** Gross and score sums, and the rows counted in them, leave out rows with a value of 0. */
+  final long[] grossSum;
+  final int[] grossed;
+  final long[] votesSum;
+  final long[] scoreSum;
+  final int[] scored;
+
+  /** Ranking per metric; sorting twice in a race gives the same order, so no lock. */
+  private final AtomicReferenceArray<EntityRanking> rankings =
+      new AtomicReferenceArray<>(MovieAnalyzer.Metric.values().length);
+
+  private EntityStats(MovieAnalyzer.Entity entity, StringDictionary names, int ids) {
+    this.entity = entity;
+    this.names = names;
+    this.rows = new int[ids];
+    this.ratingSum = new double[ids];
+    this.grossSum = new long[ids];
+    this.grossed = new int[ids];
+    this.votesSum = new long[ids];
+    this.scoreSum = new long[ids];
+    this.scored = new int[ids];
+  }
+
+  private EntityStats(EntityStats from, StringDictionary names, int ids) {
+    this.entity = from.entity;
+    this.names = names;
+    this.rows = Arrays.copyOf(from.rows, ids);
+    this.ratingSum = Arrays.copyOf(from.ratingSum, ids);
+    this.grossSum = Arrays.copyOf(from.grossSum, ids);
+    this.grossed = Arrays.copyOf(from.grossed, ids);
+    this.votesSum = Arrays.copyOf(from.votesSum, ids);
+    this.scoreSum = Arrays.copyOf(from.scoreSum, ids);
+    this.scored = Arrays.copyOf(from.scored, ids);
+  }
+
+  static EntityStats build(MovieDataset d, MovieAnalyzer.Entity entity, ForkJoinPool pool) {
+    StringDictionary names = names(d, entity);
+    // Read once, so every partition sizes its sums alike while appends intern more names.
+    int ids = names.size();
+    return RowPartitions.aggregate(
+        pool,
+        d.size,
+        () -> new EntityStats(entity, names, ids),
+        (partial, from, to) -> partial.add(d, from, to),
+        EntityStats::merge);
+  }
+
+  /**
+   * Returns the sums of {@code extended}, whose first {@code from} rows are the ones covered here.
+   * Costs time in the number of new rows and of distinct names; these sums stay unchanged.
+   */
+  EntityStats append(MovieDataset extended, int from) {
+    StringDictionary names = names(extended, entity);
+    EntityStats next = new EntityStats(this, names, names.size());
+    next.add(extended, from, extended.size);
+    return next;
+  }
+
+  static StringDictionary names(MovieDataset d, MovieAnalyzer.Entity entity) {
+    switch (entity) {
+      case STAR:
+      case DIRECTOR:
+        return d.people;
+      case GENRE:
+        return d.genres;
+      case CERTIFICATE:
+        return d.certificates;
+      default:
+        throw new AssertionError(entity);
+    }
+  }
+
+  StringDictionary names() {
+    return names;
+  }
+
+  /**
+   * The value entity {@code id} is ranked by: a mean over the rows the metric counts, rounded down
+   * for whole-number columns, or the number of rows for {@link MovieAnalyzer.Metric#MOVIES}. An
+   * entity none of whose rows count has a value of 0.
+   */
+  double value(int id, MovieAnalyzer.Metric metric) {
+    switch (metric) {
+      case RATING:
+        return ratingSum[id] / rows[id];
+      case GROSS:
+        return grossed[id] == 0 ? 0 : grossSum[id] / grossed[id];
+      case VOTES:
+        return votesSum[id] / rows[id];
+      case SCORE:
+        return scored[id] == 0 ? 0 : scoreSum[id] / scored[id];
+      case MOVIES:
+        return rows[id];
+      default:
+        throw new AssertionError(metric);
+    }
+  }
+
+  /** Every entity named by any row, best first by {@code metric}; sorted on first request. */
+  EntityRanking ranking(MovieAnalyzer.Metric metric) {
+    EntityRanking ranking = rankings.get(metric.ordinal());
+    if (ranking == null) {
+      ranking = EntityRanking.build(this, metric);
+      rankings.set(metric.ordinal(), ranking);
+    }
+    return ranking;
+  }
+
+  /**
+   * Adds rows {@code from} to {@code to} a block at a time: each metric column is loaded once per
+   * block by {@link ScanKernels}, then added to the entity each id column names.
+   */
+  void add(MovieDataset d, int from, int to) {
+    Block block = new Block();
+    for (int start = from; start < to; start += ScanKernels.BLOCK) {
+      int length = Math.min(ScanKernels.BLOCK, to - start);
+      block.load(d, start, length);
+      switch (entity) {
+        case STAR:
+          for (IntColumn column : d.stars) {
+            addColumn(block, column, start, length);
+          }
+          break;
+        case DIRECTOR:
+          addColumn(block, d.director, start, length);
+          break;
+        case CERTIFICATE:
+          addColumn(block, d.certificate, start, length);
+          break;
+        case GENRE:
+          d.genreList.get(start, block.ids, length);
+          for (int i = 0; i < length; i++) {
+            int list = block.ids[i];
+            for (int g = d.genreStart[list]; g < d.genreStart[list + 1]; g++) {
+              addRow(block, d.genreIds[g], i);
+            }
+          }
+          break;
+        default:
+          throw new AssertionError(entity);
+      }
+    }
+  }
+
+  private void addColumn(Block block, IntColumn ids, int from, int length) {
+    ids.get(from, block.ids, length);
+    for (int i = 0; i < length; i++) {
+      addRow(block, block.ids[i], i);
+    }
+  }
+
+  private void addRow(Block block, int id, int i) {
+    rows[id]++;
+    ratingSum[id] += block.rating[i];
+    grossSum[id] += block.gross[i];
+    grossed[id] += block.grossed[i];
+    votesSum[id] += block.votes[i];
+    scoreSum[id] += block.score[i];
+    scored[id] += block.scored[i];
+  }
+
+  private EntityStats merge(EntityStats other) {
+    for (int id = 0; id < rows.length; id++) {
+      rows[id] += other.rows[id];
+      ratingSum[id] += other.ratingSum[id];
+      grossSum[id] += other.grossSum[id];
+      grossed[id] += other.grossed[id];
+      votesSum[id] += other.votesSum[id];
+      scoreSum[id] += other.scoreSum[id];
+      scored[id] += other.scored[id];
+    }
+    return this;
+  }
+
+  /** Scratch arrays holding one block of each metric column, and whether each row counts. */
+  private static final class Block {
+    final int[] ids = new int[ScanKernels.BLOCK];
+    final float[] rating = new float[ScanKernels.BLOCK];
+    final long[] gross = new long[ScanKernels.BLOCK];
+    final int[] grossed = new int[ScanKernels.BLOCK];
+    final int[] votesInt = new int[ScanKernels.BLOCK];
+    final long[] votes = new long[ScanKernels.BLOCK];
+    final int[] scoreInt = new int[ScanKernels.BLOCK];
+    final long[] score = new long[ScanKernels.BLOCK];
+    final int[] scored = new int[ScanKernels.BLOCK];
+
+    /** Rows the metric leaves out have a value of 0, so values are summed without testing. */
+    void load(MovieDataset d, int from, int length) {
+      d.rating.get(from, rating, length);
+      d.gross.get(from, gross, length);
+      ScanKernels.nonZero(gross, length, grossed);
+      d.votes.get(from, votesInt, length);
+      ScanKernels.widen(votesInt, length, votes);
+      d.score.get(from, scoreInt, length);
+      ScanKernels.widen(scoreInt, length, score);
+      ScanKernels.nonZero(scoreInt, length, scored);
+    }
+  }
+}
@@ -0,0 +1,132 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Column of ints, either in a heap array or off the heap in a buffer, typically a region of a
+ * memory-mapped snapshot. Callers see the same rows through {@link #get} either way.
+ *
+ * <p>Rows appended to an off-heap column go to a direct buffer after the ones it started with, its
+ * tail. Growing the column copies only the tail, so appends cost time in the rows they add rather
+ * than in the rows already mapped.
+ */
+final class IntColumn {
+
+  /** Rows a new tail has room for at least, so that single rows are not copied one by one. */
+  private static final int MIN_TAIL = 1024;
+
+  private final int[] array;
+  private final IntBuffer buffer;
+  /** Rows from {@link #split} on; null until rows are appended off the heap. */
+  private final IntBuffer tail;
+  /** Rows read from {@link #buffer}. */
+  private final int split;
+
+  IntColumn(int[] array) {
+    this.array = array;
+    this.buffer = null;
+    this.tail = null;
+    this.split = 0;
+  }
+
+  IntColumn(IntBuffer buffer) {
+    this(buffer, null, buffer.capacity());
+  }
+
+  private IntColumn(IntBuffer buffer, IntBuffer tail, int split) {
+    this.array = null;
+    this.buffer = buffer;
+    this.tail = tail;
+    this.split = split;
+  }
+
+  int get(int row) {
+    if (array != null) {
+      return array[row];
+    }
+    return row < split ? buffer.get(row) : tail.get(row - split);
+  }
+
+  /** Copies {@code length} rows starting at {@code from} into {@code block}. */
+  void get(int from, int[] block, int length) {
+    if (array != null) {
+      System.arraycopy(array, from, block, 0, length);
+      return;
+    }
+    int head = Math.max(0, Math.min(length, split - from));
+    if (head > 0) {
+      IntBuffer rows = buffer.duplicate();
+      rows.position(from);
+      rows.get(block, 0, head);
+    }
+    if (head < length) {
+      IntBuffer rows = tail.duplicate();
+      rows.position(from + head - split);
+      rows.get(block, head, length - head);
+    }
+  }
+
+  void set(int row, int value) {
+    if (array != null) {
+      array[row] = value;
+    } else if (row < split) {
+      buffer.put(row, value);
+    } else {
+      tail.put(row - split, value);
+    }
+  }
+
+  /** Rows the column can hold; only a data set's first {@code size} of them are its own. */
+  int capacity() {
+    if (array != null) {
+      return array.length;
+    }
+    return split + (tail == null ? 0 : tail.capacity());
+  }
+
+  /**
+   * Returns a column holding the first {@code size} rows of this one with room for {@code rows}
+   * in all. With {@code inPlace}, which only the first data set to extend one of {@code size}
+   * rows may ask for, that is this column if it has the room and can write it. Otherwise heap
+   * columns are copied with room to double, and off-heap ones share their mapped rows and copy
+   * only their tail.
+   */
+  IntColumn grow(int size, int rows, boolean inPlace) {
+    if (array != null) {
+      if (inPlace && array.length >= rows) {
+        return this;
+      }
+      return new IntColumn(Arrays.copyOf(array, Math.max(rows, size * 2)));
+    }
+    if (inPlace && capacity() >= rows && (size >= split || !buffer.isReadOnly())) {
+      return this;
+    }
+    int kept = Math.min(size, split);
+    int carried = size - kept;
+    IntBuffer grown = allocate(Math.max(rows - kept, Math.max(carried * 2, MIN_TAIL)));
+    if (carried > 0) {
+      IntBuffer old = tail.duplicate();
+      old.limit(carried);
+      grown.put(old);
+      grown.clear();
+    }
+    return new IntColumn(buffer, grown, kept);
+  }
+
+  /** Copies the first {@code length} rows into an array. */
+  int[] toArray(int length) {
+    if (array != null) {
+      return Arrays.copyOf(array, length);
+    }
+    int[] rows = new int[length];
+    get(0, rows, length);
+    return rows;
+  }
+
+  private static IntBuffer allocate(int rows) {
+    return ByteBuffer.allocateDirect(Math.multiplyExact(rows, 4))
+        .order(ByteOrder.nativeOrder())
+        .asIntBuffer();
+  }
+}
@@ -0,0 +1,95 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of non-negative values, typically nanoseconds, in log-linear buckets as
+ * HdrHistogram uses: every power of two is split into 32 equal buckets, so any value is reported
+ * within about 3% of what was recorded, from 1 ns to hundreds of years, in 1888 counters.
+ */
+final class LatencyHistogram {
+
+  private static final int SUB_BITS = 5;
+  private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+  private final AtomicLongArray counts = new AtomicLongArray((64 - SUB_BITS) * SUB_BUCKETS);
+  private final AtomicLong total = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+
+  void record(long value) {
+    if (value < 0) {
+      value = 0;
+    }
+    counts.incrementAndGet(index(value));
+    total.addAndGet(value);
+    max.accumulateAndGet(value, Math::max);
+  }
+
+  /**
+   * Returns a copy that later recordings do not change. It is read field by field without
+   * stopping recorders, so a recording that lands meanwhile may show in some fields and not yet
+   * in others: the total can disagree with the counts by the values being recorded.
+   */
+  LatencyHistogram copy() {
+    LatencyHistogram copy = new LatencyHistogram();
+    for (int i = 0; i < counts.length(); i++) {
+      copy.counts.set(i, counts.get(i));
+    }
+    copy.total.set(total.get());
+    copy.max.set(max.get());
+    return copy;
+  }
+
+  long count() {
+    long count = 0;
+    for (int i = 0; i < counts.length(); i++) {
+      count += counts.get(i);
+    }
+    return count;
+  }
+
+  long total() {
+    return total.get();
+  }
+
+  long max() {
+    return max.get();
+  }
+
+  /**
+   * Returns the value at or below which {@code percent} of recordings fall, as the highest value
+   * its bucket holds; 0 when nothing was recorded.
+   */
+  long percentile(double percent) {
+    long count = count();
+    if (count == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(percent / 100 * count));
+    long seen = 0;
+    for (int i = 0; i < counts.length(); i++) {
+      seen += counts.get(i);
+      if (seen >= rank) {
+        return Math.min(highestInBucket(i), max.get());
+      }
+    }
+    return max.get();
+  }
+
+  static int index(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int msb = 63 - Long.numberOfLeadingZeros(value);
+    int sub = (int) (value >>> (msb - SUB_BITS));
+    return (msb - SUB_BITS + 1) * SUB_BUCKETS + sub - SUB_BUCKETS;
+  }
+
+  static long highestInBucket(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int shift = index / SUB_BUCKETS - 1;
+    long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+}
@@ -0,0 +1,201 @@
+/**
+ * Open-addressing hash map from primitive long keys to int values. Keys are never boxed, and an
+ * update costs a single probe sequence.
+ *
+ * <p>Collisions are resolved by Robin Hood linear probing, with ties broken by key, and the table
+ * only grows when it fills up. The layout, and so the iteration order, depends only on which keys
+ * the map holds and not on the order they were added in. Maps merged from partial counts therefore
+ * iterate exactly like a map counted in one pass.
+ */
+final class LongIntHashMap {
+
+  private static final long EMPTY = 0L;
+  private static final int MIN_CAPACITY = 16;
+  private static final int MERGE_STRIDE = 0x9E3779B9;
+
+  private long[] keys;
+  private int[] values;
+  private int mask;
+  private int size;
+  private int resizeAt;
+  // EMPTY marks a free slot, so the key 0 is kept aside.
+  private boolean hasZeroKey;
+  private int zeroValue;
+
+  LongIntHashMap() {
+    allocate(MIN_CAPACITY);
+  }
+
+  /** Adds {@code delta} to the value of {@code key}, inserting it with 0 first if absent. */
+  int addTo(long key, int delta) {
+    if (key == EMPTY) {
+      if (!hasZeroKey) {
+        hasZeroKey = true;
+        size++;
+      }
+      return zeroValue += delta;
+    }
+    int slot = slot(key);
+    int dist = 0;
+    while (true) {
+      long resident = keys[slot];
+      if (resident == key) {
+        return values[slot] += delta;
+      }
+      if (resident == EMPTY || yields(resident, slot, key, dist)) {
+        break;
+      }
+      slot = (slot + 1) & mask;
+      dist++;
+    }
+    insert(slot, dist, key, delta);
+    if (++size > resizeAt) {
+      rehash(keys.length * 2);
+    }
+    return delta;
+  }
+
+  /** Adds every count of {@code other} to this map. */
+  void addAll(LongIntHashMap other) {
+    if (other.hasZeroKey) {
+      addTo(EMPTY, other.zeroValue);
+    }
+    // Copying slots in storage order would replay whole clusters into the same region of this
+    // table and make probing quadratic, so visit them with an odd stride instead.
+    long[] otherKeys = other.keys;
+    int otherMask = other.mask;
+    for (int i = 0, slot = 0; i <= otherMask; i++, slot = (slot + MERGE_STRIDE) & otherMask) {
+      if (otherKeys[slot] != EMPTY) {
+        addTo(otherKeys[slot], other.values[slot]);
+      }
+    }
+  }
+
+  /** Returns a copy with the same entries and layout. */
+  LongIntHashMap copy() {
+    LongIntHashMap copy = new LongIntHashMap();
+    copy.keys = keys.clone();
+    copy.values = values.clone();
+    copy.mask = mask;
+    copy.size = size;
+    copy.resizeAt = resizeAt;
+    copy.hasZeroKey = hasZeroKey;
+    copy.zeroValue = zeroValue;
+    return copy;
+  }
+
+  boolean containsKey(long key) {
+    if (key == EMPTY) {
+      return hasZeroKey;
+    }
+    return find(key) >= 0;
+  }
+
+  /** Returns the value of {@code key}, or 0 if it is absent. */
+  int get(long key) {
+    if (key == EMPTY) {
+      return zeroValue;
+    }
+    int slot = find(key);
+    return slot < 0 ? 0 : values[slot];
+  }
+
+  int size() {
+    return size;
+  }
+
+  /** Iterates over the entries: {@code while (c.advance()) { c.key(); c.value(); }}. */
+  Cursor cursor() {
+    return new Cursor();
+  }
+
+  final class Cursor {
+    private int slot = hasZeroKey ? -2 : -1;
+
+    boolean advance() {
+      if (slot == -2) {
+        slot = -1;
+        return true;
+      }
+      do {
+        slot++;
+      } while (slot < keys.length && keys[slot] == EMPTY);
+      return slot < keys.length;
+    }
+
+    long key() {
+      return slot < 0 ? EMPTY : keys[slot];
+    }
+
+    int value() {
+      return slot < 0 ? zeroValue : values[slot];
+    }
+  }
+
+  private int find(long key) {
+    int slot = slot(key);
+    for (int dist = 0; ; dist++) {
+      long resident = keys[slot];
+      if (resident == key) {
+        return slot;
+      }
+      if (resident == EMPTY || yields(resident, slot, key, dist)) {
+        return -1;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  /**
+   * Whether {@code resident}, stored at {@code slot}, gives way to {@code key} arriving there after
+   * {@code dist} probes: keys further from their home slot come first, then smaller keys.
+   */
+  private boolean yields(long resident, int slot, long key, int dist) {
+    int residentDist = (slot - slot(resident)) & mask;
+    return residentDist < dist || (residentDist == dist && resident > key);
+  }
+
+  private void insert(int slot, int dist, long key, int value) {
+    while (true) {
+      long resident = keys[slot];
+      if (resident == EMPTY) {
+        keys[slot] = key;
+        values[slot] = value;
+        return;
+      }
+      if (yields(resident, slot, key, dist)) {
+        int residentValue = values[slot];
+        keys[slot] = key;
+        values[slot] = value;
+        key = resident;
+        value = residentValue;
+        dist = (slot - slot(resident)) & mask;
+      }
+      slot = (slot + 1) & mask;
+      dist++;
+    }
+  }
+
+  private int slot(long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32)) & mask;
+  }
+
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    values = new int[capacity];
+    mask = capacity - 1;
+    resizeAt = capacity / 4 * 3;
+  }
+
+  private void rehash(int capacity) {
+    long[] oldKeys = keys;
+    int[] oldValues = values;
+    allocate(capacity);
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != EMPTY) {
+        insert(slot(oldKeys[i]), 0, oldKeys[i], oldValues[i]);
+      }
+    }
+  }
+}
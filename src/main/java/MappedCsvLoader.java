@@ -0,0 +1,232 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Loads the movie CSV by scanning memory-mapped windows of the file as raw bytes. Names are
+ * decoded once per distinct value, numbers are parsed straight from the bytes, and link and
+ * overview text is copied as bytes into {@link TextColumn}s, to be decoded only when read.
+ * Overview lengths are counted from the bytes.
+ *
+ * <p>With a pool, each window is cut into one byte range per worker. Every cut is moved forward to
+ * the next line break outside quotes, so each range holds whole records. The ranges are parsed
+ * concurrently and their rows appended in file order.
+ *
+ * <p>{@link #stream} hands over the rows of each window as it is parsed rather than keeping them
+ * all, for a caller that writes them out of the heap.
+ */
+final class MappedCsvLoader {
+
+  /** Largest window mapped at once; a single mapping cannot exceed 2 GB. */
+  static final int WINDOW = 1 << 30;
+
+  /** Window of {@link #stream}, which bounds the rows held on the heap at once. */
+  static final int STREAM_WINDOW = 1 << 26;
+
+  /** Smallest byte range worth handing to a worker of its own. */
+  static final int MIN_CHUNK = 1 << 16;
+
+  /** Receives the rows of one window; they share their dictionaries with every other batch. */
+  interface Batches {
+    void accept(MovieDataset batch) throws IOException;
+  }
+
+  private MappedCsvLoader() {}
+
+  static MovieDataset load(Path file, boolean text) throws IOException {
+    return load(file, text, null, WINDOW);
+  }
+
+  static MovieDataset load(Path file, boolean text, ForkJoinPool pool) throws IOException {
+    return load(file, text, pool, WINDOW);
+  }
+
+  static MovieDataset load(Path file, boolean text, ForkJoinPool pool, int window)
+      throws IOException {
+    MovieDataset.Builder builder = new MovieDataset.Builder(text);
+    scan(file, builder, text, pool, window, null);
+    return builder.build();
+  }
+
+  /**
+   * Parses {@code file} a window of {@code window} bytes at a time, passing the rows of each
+   * window to {@code batches} and dropping them. Strings keep the ids they were first given, and a
+   * last batch without rows carries the dictionaries of the whole file.
+   */
+  static void stream(Path file, boolean text, ForkJoinPool pool, int window, Batches batches)
+      throws IOException {
+    MovieDataset.Builder builder = new MovieDataset.Builder(text);
+    scan(file, builder, text, pool, window, batches);
+    batches.accept(builder.build());
+  }
+
+  private static void scan(
+      Path file,
+      MovieDataset.Builder builder,
+      boolean text,
+      ForkJoinPool pool,
+      int window,
+      Batches batches)
+      throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      long position = 0;
+      while (position < size) {
+        int length = (int) Math.min(size - position, window);
+        boolean last = position + length == size;
+        MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        boolean header = position == 0;
+        int chunks =
+            pool == null ? 1 : Math.max(1, Math.min(pool.getParallelism(), length / MIN_CHUNK));
+        int consumed;
+        if (chunks == 1) {
+          consumed = parse(builder, new ByteCsvScanner(buf, 0, length, last), text, header);
+        } else {
+          consumed = parseChunks(builder, buf, length, last, header, text, chunks, pool);
+        }
+        if (consumed == 0 && !last) {
+          throw new IOException("Record at byte " + position + " does not fit a mapped window");
+        }
+        // The next window starts at the first record this one could not finish.
+        position += consumed;
+        if (batches != null && builder.size() > 0) {
+          batches.accept(builder.build());
+          builder.clear();
+        }
+      }
+    }
+  }
+
+  /** Parses every record of {@code csv} into {@code rows}, returning where the scan stopped. */
+  private static int parse(
+      MovieDataset.Builder rows, ByteCsvScanner csv, boolean text, boolean skipHeader) {
+    Utf8Interner names = new Utf8Interner();
+    if (skipHeader) {
+      csv.next();
+    }
+    while (csv.next()) {
+      add(rows, csv, names, text);
+    }
+    return csv.position();
+  }
+
+  private static int parseChunks(
+      MovieDataset.Builder builder,
+      ByteBuffer buf,
+      int length,
+      boolean last,
+      boolean header,
+      boolean text,
+      int chunks,
+      ForkJoinPool pool) {
+    int[] bounds = recordBounds(buf, length, chunks, pool);
+    List<MovieDataset.Builder> parts = new ArrayList<>(chunks);
+    List<ForkJoinTask<Integer>> ends = new ArrayList<>(chunks);
+    for (int i = 0; i < chunks; i++) {
+      // Only the range running to the end of the window can end in a partial record.
+      ByteCsvScanner csv =
+          new ByteCsvScanner(buf, bounds[i], bounds[i + 1], bounds[i + 1] < length || last);
+      MovieDataset.Builder part = new MovieDataset.Builder(text);
+      boolean skipHeader = header && i == 0;
+      parts.add(part);
+      ends.add(pool.submit(() -> parse(part, csv, text, skipHeader)));
+    }
+    int consumed = 0;
+    for (int i = 0; i < chunks; i++) {
+      int end = ends.get(i).join();
+      builder.addAll(parts.get(i));
+      if (bounds[i] < bounds[i + 1]) {
+        consumed = end;
+      }
+    }
+    return consumed;
+  }
+
+  /**
+   * Cuts {@code [0, length)} into {@code chunks} ranges that start at record boundaries. The
+   * window starts at a record, so counting the quotes before a cut tells whether the cut falls
+   * inside a quoted field. Each range's quotes are counted concurrently first, then every cut
+   * advances past the next line break at even quote parity.
+   */
+  private static int[] recordBounds(ByteBuffer buf, int length, int chunks, ForkJoinPool pool) {
+    int[] cuts = new int[chunks + 1];
+    for (int i = 0; i <= chunks; i++) {
+      cuts[i] = (int) ((long) length * i / chunks);
+    }
+    List<ForkJoinTask<Integer>> counts = new ArrayList<>(chunks);
+    for (int i = 0; i < chunks; i++) {
+      int from = cuts[i];
+      int to = cuts[i + 1];
+      counts.add(pool.submit(() -> countQuotes(buf, from, to)));
+    }
+    List<ForkJoinTask<Integer>> starts = new ArrayList<>(chunks);
+    int quotes = 0;
+    for (int i = 1; i < chunks; i++) {
+      quotes += counts.get(i - 1).join();
+      int from = cuts[i];
+      boolean quoted = (quotes & 1) != 0;
+      starts.add(pool.submit(() -> nextRecord(buf, from, length, quoted)));
+    }
+    int[] bounds = new int[chunks + 1];
+    bounds[chunks] = length;
+    for (int i = 1; i < chunks; i++) {
+      bounds[i] = Math.max(bounds[i - 1], starts.get(i - 1).join());
+    }
+    return bounds;
+  }
+
+  private static int countQuotes(ByteBuffer buf, int from, int to) {
+    int quotes = 0;
+    for (int p = from; p < to; p++) {
+      if (buf.get(p) == '"') {
+        quotes++;
+      }
+    }
+    return quotes;
+  }
+
+  /** Returns the start of the first record after {@code from}, or {@code length} if none. */
+  private static int nextRecord(ByteBuffer buf, int from, int length, boolean quoted) {
+    for (int p = from; p < length; p++) {
+      byte b = buf.get(p);
+      if (b == '"') {
+        quoted = !quoted;
+      } else if (b == '\n' && !quoted) {
+        return p + 1;
+      }
+    }
+    return length;
+  }
+
+  private static void add(
+      MovieDataset.Builder builder, ByteCsvScanner csv, Utf8Interner names, boolean text) {
+    if (text) {
+      // Escaped quotes are kept as two characters, as the reader-based parser does.
+      csv.copyText(0, builder.link());
+      csv.copyQuotedAsApostrophes(7, builder.overview());
+    }
+    builder.addRow(
+        csv.text(1),
+        csv.parseInt(2),
+        csv.intern(3, names),
+        csv.parseInt(4),
+        csv.intern(5, names),
+        csv.parseFloat(6),
+        csv.rawCharLength(7),
+        csv.parseInt(8),
+        csv.intern(9, names),
+        csv.intern(10, names),
+        csv.intern(11, names),
+        csv.intern(12, names),
+        csv.intern(13, names),
+        csv.parseInt(14),
+        csv.parseLong(15));
+  }
+}
@@ -1,15 +1,35 @@
 import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
-import java.util.function.Supplier;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
-
-public class MovieAnalyzer {
-
-  Supplier<Stream<Movie>> streamSupplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.IntStream;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+public class MovieAnalyzer implements AutoCloseable {
+
+  private final String dataSet;
+  private final boolean text;
+  private final String snapshot;
+  private final boolean offHeap;
+  private final ForkJoinPool pool;
+  private final ResultCache cache;
+  private final AnalyzerMetrics metrics;
+  /**
+   * The movies every query runs against. A data set is never modified once published here, and
+   * carries its own aggregates and indexes, so queries read it without locking; reloads and
+   * appends build a new one and swap it in.
+   */
+  private final AtomicReference<MovieDataset> current = new AtomicReference<>();
 
   public static class Movie {
     private final String link;
@@ -20,6 +40,8 @@ public class MovieAnalyzer {
     private final String genre;
     private final float rating;
     private final String overview;
+    /** Kept apart from the overview, which is null when the analyzer skips text. */
+    private final int overviewLength;
     private final int score;
     private final String director;
     private final String star1;
@@ -27,7 +49,7 @@ public class MovieAnalyzer {
     private final String star3;
     private final String star4;
     private final int votes;
-    private final int gross;
+    private final long gross;
 
     public Movie(
         String link,
@@ -45,7 +67,45 @@ public class MovieAnalyzer {
         String star3,
         String star4,
         int votes,
-        int gross) {
+        long gross) {
+      this(
+          link,
+          title,
+          year,
+          certificate,
+          runtime,
+          genre,
+          rating,
+          overview,
+          overview == null ? 0 : overview.length(),
+          score,
+          director,
+          star1,
+          star2,
+          star3,
+          star4,
+          votes,
+          gross);
+    }
+
+    Movie(
+        String link,
+        String title,
+        int year,
+        String certificate,
+        int runtime,
+        String genre,
+        float rating,
+        String overview,
+        int overviewLength,
+        int score,
+        String director,
+        String star1,
+        String star2,
+        String star3,
+        String star4,
+        int votes,
+        long gross) {
       this.link = link;
       this.title = title;
       this.year = year;
@@ -54,6 +114,7 @@ public class MovieAnalyzer {
       this.genre = genre;
       this.rating = rating;
       this.overview = overview;
+      this.overviewLength = overviewLength;
       this.score = score;
       this.director = director;
       this.star1 = star1;
@@ -124,256 +185,803 @@ public class MovieAnalyzer {
       return votes;
     }
 
-    public int getGross() {
+    public long getGross() {
       return gross;
     }
   }
 
+  /** What {@link #getTopEntities} ranks: names that rows refer to. */
+  public enum Entity {
+    /** Any of a movie's four stars. */
+    STAR,
+    DIRECTOR,
+    /** Each genre of a movie's genre list. */
+    GENRE,
+    CERTIFICATE
+  }
+
+  /**
+   * What {@link #getTopEntities} ranks entities by, highest first. Means are over the entity's
+   * movies that have a value: movies without a gross figure or Meta_score are left out of those
+   * means, and means of whole-number columns are rounded down.
+   */
+  public enum Metric {
+    /** Mean IMDB rating. */
+    RATING,
+    /** Mean gross. */
+    GROSS,
+    /** Mean number of votes. */
+    VOTES,
+    /** Mean Meta_score. */
+    SCORE,
+    /** Number of movies. */
+    MOVIES;
+
+    /** The metric named {@code by} in lower case, as the string queries take it, or null. */
+    static Metric named(String by) {
+      for (Metric metric : values()) {
+        if (metric.name().toLowerCase(Locale.ROOT).equals(by)) {
+          return metric;
+        }
+      }
+      return null;
+    }
+  }
+
   public MovieAnalyzer(String data_set) {
+    this(builder(data_set));
+  }
+
+  private MovieAnalyzer(Builder builder) {
+    this.dataSet = builder.dataSet;
+    this.text = builder.text;
+    this.snapshot = builder.snapshot;
+    this.offHeap = builder.offHeap;
+    this.pool = builder.parallelism > 1 ? new ForkJoinPool(builder.parallelism) : null;
+    this.cache = builder.cacheSize > 0 ? new ResultCache(builder.cacheSize) : null;
+    this.metrics = builder.metrics ? new AnalyzerMetrics() : null;
+    if (builder.data != null) {
+      current.set(builder.data);
+    } else {
+      reload();
+    }
+  }
+
+  public static Builder builder(String data_set) {
+    return new Builder(data_set, null);
+  }
+
+  /** Starts an analyzer over an already built data set, which has no file to reload from. */
+  static Builder builder(MovieDataset data) {
+    return new Builder(null, data);
+  }
+
+  /**
+   * Opens a snapshot written by {@link #saveSnapshot}, without a CSV file to check it against or
+   * reload from.
+   */
+  public static MovieAnalyzer openSnapshot(String snapshot_file) {
+    try {
+      MovieDataset data = MovieSnapshot.open(Paths.get(snapshot_file), null, false);
+      if (data == null) {
+        throw new IllegalStateException("Not a valid movie snapshot: " + snapshot_file);
+      }
+      return builder(data).build();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public static final class Builder {
+    private final String dataSet;
+    private final MovieDataset data;
+    private int parallelism = 1;
+    private boolean text = true;
+    private String snapshot;
+    private boolean offHeap;
+    private int cacheSize;
+    private boolean metrics;
+
+    private Builder(String dataSet, MovieDataset data) {
+      this.dataSet = dataSet;
+      this.data = data;
+    }
+
+    /**
+     * Splits loading and every query across {@code threads} workers of a dedicated fork/join pool.
+     * Results are identical to the single-threaded ones, including their order. The pool lives
+     * until the analyzer is {@link MovieAnalyzer#close closed}. Defaults to 1.
+     */
+    public Builder parallelism(int threads) {
+      if (threads < 1) {
+        throw new IllegalArgumentException("parallelism must be at least 1: " + threads);
+      }
+      this.parallelism = threads;
+      return this;
+    }
+
+    /**
+     * Whether each movie's link and overview text is kept, as bytes decoded only when a movie is
+     * materialised. Defaults to true. No query needs the text, so it can be skipped to save memory,
+     * in which case {@link Movie#getLink()} and {@link Movie#getOverview()} return null; such
+     * movies still carry their overview length when passed back to {@link #append}.
+     */
+    public Builder text(boolean keep) {
+      this.text = keep;
+      return this;
+    }
+
+    /**
+     * Loads from the binary snapshot at {@code snapshot_file} when it is current for the data set
+     * file. Otherwise the CSV is parsed and the snapshot rewritten for the next start.
+     */
+    public Builder snapshot(String snapshot_file) {
+      this.snapshot = snapshot_file;
+      return this;
+    }
+
+    /**
+     * Whether the columns, text, search index and string dictionaries are kept off the Java heap,
+     * read in place from a memory-mapped snapshot, so data sets larger than the heap can be
+     * queried. The CSV is converted to the snapshot a window at a time through temporary files;
+     * without a configured {@link #snapshot} a temporary one is written on each load. Movies
+     * appended later go to direct buffers after the mapped ones. Defaults to false.
+     */
+    public Builder offHeap(boolean mapped) {
+      this.offHeap = mapped;
+      return this;
+    }
+
+    /**
+     * Caches the results of up to {@code entries} distinct query calls, evicting the least
+     * recently used. Cached results are read-only and are dropped on {@link #reload()}. Defaults
+     * to 0, which disables the cache.
+     */
+    public Builder cacheSize(int entries) {
+      if (entries < 0) {
+        throw new IllegalArgumentException("cacheSize must not be negative: " + entries);
+      }
+      this.cacheSize = entries;
+      return this;
+    }
+
+    /**
+     * Whether to record latency histograms, rows scanned, bytes read and allocations, for {@link
+     * #getMetrics()} and the MBean of {@link #registerMBean}. Defaults to false, which leaves
+     * queries uninstrumented.
+     */
+    public Builder metrics(boolean record) {
+      this.metrics = record;
+      return this;
+    }
 
-    streamSupplier =
-        () -> {
-          try {
-            return Files.lines(Paths.get(data_set))
-                .skip(1)
-                .map(
-                    l -> {
-                      if (l.endsWith(",")) {
-                        l += "0";
-                      }
-                      return l.trim().split(",(?=([^\\\"]*\\\"[^\\\"]*\\\")*[^\\\"]*$)", -1);
-                    })
-                .map(
-                    a ->
-                        new Movie(
-                            a[0],
-                            a[1].replace("\"", ""),
-                            Integer.parseInt(a[2]),
-                            a[3],
-                            Integer.parseInt(a[4].replace(" min", "")),
-                            a[5],
-                            Float.parseFloat(a[6]),
-                            a[7].replace("\"\"", "''").replace("\"", ""),
-                            Integer.parseInt(a[8].replace("", "0")),
-                            a[9],
-                            a[10],
-                            a[11],
-                            a[12],
-                            a[13],
-                            Integer.parseInt(a[14]),
-                            Integer.parseInt(a[15].replace(",", "").replace("\"", ""))));
-          } catch (IOException e) {
-            e.printStackTrace();
+    public MovieAnalyzer build() {
+      return new MovieAnalyzer(this);
+    }
+  }
+
+  /**
+   * Converts {@code source} to the configured snapshot, or to a temporary one deleted once mapped
+   * (at exit where the platform does not delete mapped files), and opens it off the heap.
+   */
+  private MovieDataset mapped(Path source) throws IOException {
+    long start = System.nanoTime();
+    Path file =
+        snapshot != null ? Paths.get(snapshot) : Files.createTempFile("movies", ".snapshot");
+    try {
+      MovieSnapshot.convert(source, file, text, pool, MappedCsvLoader.STREAM_WINDOW);
+      MovieDataset loaded = MovieSnapshot.open(file, source, text, true);
+      if (metrics != null) {
+        metrics.load(System.nanoTime() - start, loaded.size, Files.size(source));
+      }
+      return loaded;
+    } finally {
+      if (snapshot == null) {
+        try {
+          Files.delete(file);
+        } catch (IOException e) {
+          file.toFile().deleteOnExit();
+        }
+      }
+    }
+  }
+
+  /**
+   * Re-reads the data set file, replacing the movies every query runs against. The file is
+   * memory-mapped and scanned as bytes rather than decoded line by line, unless a current snapshot
+   * was configured; off the heap it is converted to a snapshot and mapped. Queries running
+   * meanwhile keep answering from the previous movies; those
+   * starting after the swap see only the new ones.
+   */
+  public void reload() {
+    if (dataSet == null) {
+      throw new IllegalStateException("This analyzer was not loaded from a file");
+    }
+    try {
+      Path source = Paths.get(dataSet);
+      MovieDataset loaded = null;
+      if (snapshot != null) {
+        long start = System.nanoTime();
+        loaded = MovieSnapshot.open(Paths.get(snapshot), source, text, offHeap);
+        if (loaded != null && metrics != null) {
+          metrics.load(System.nanoTime() - start, loaded.size, Files.size(Paths.get(snapshot)));
+        }
+      }
+      if (loaded == null && offHeap) {
+        loaded = mapped(source);
+      } else if (loaded == null) {
+        loaded = load(source);
+        if (snapshot != null) {
+          MovieSnapshot.save(loaded, Paths.get(snapshot), source);
+        }
+      }
+      current.set(loaded);
+      if (cache != null) {
+        cache.clear();
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Adds {@code movies} after the loaded ones. Aggregates that queries have already computed are
+   * brought up to date from the new rows alone; a later {@link #reload} drops appended movies. A
+   * null certificate, genre, director or star is added as the empty string a blank CSV field
+   * gives.
+   */
+  public void append(Movie... movies) {
+    MovieDataset.Builder more = new MovieDataset.Builder(text);
+    for (Movie movie : movies) {
+      more.add(
+          movie.getLink(),
+          movie.getTitle(),
+          movie.getYear(),
+          orEmpty(movie.getCertificate()),
+          movie.getRuntime(),
+          orEmpty(movie.getGenre()),
+          movie.getRating(),
+          movie.getOverview(),
+          movie.overviewLength,
+          movie.getScore(),
+          orEmpty(movie.getDirector()),
+          orEmpty(movie.getStar1()),
+          orEmpty(movie.getStar2()),
+          orEmpty(movie.getStar3()),
+          orEmpty(movie.getStar4()),
+          movie.getVotes(),
+          movie.getGross());
+    }
+    append(more.build());
+  }
+
+  private static String orEmpty(String value) {
+    return value == null ? "" : value;
+  }
+
+  /** Adds the movies of another file in the data set's CSV format, header line included. */
+  public void appendCsv(String csv_file) {
+    try {
+      append(load(Paths.get(csv_file)));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private MovieDataset load(Path file) throws IOException {
+    long start = System.nanoTime();
+    MovieDataset loaded = MappedCsvLoader.load(file, text, pool);
+    if (metrics != null) {
+      metrics.load(System.nanoTime() - start, loaded.size, Files.size(file));
+    }
+    return loaded;
+  }
+
+  private void append(MovieDataset more) {
+    while (true) {
+      MovieDataset base = current.get();
+      MovieDataset extended = base.append(more);
+      RunningTotals totals = base.totals;
+      if (totals != null) {
+        extended.totals = totals.append(extended);
+      }
+      // Lost to a concurrent reload or append: apply the movies again on top of its result.
+      if (current.compareAndSet(base, extended)) {
+        if (totals != null) {
+          scanned(more.size);
+        }
+        break;
+      }
+    }
+    if (cache != null) {
+      cache.clear();
+    }
+  }
+
+  /**
+   * Shuts down the worker pool of an analyzer built with a {@link Builder#parallelism} above 1.
+   * Queries already running still finish; the analyzer must not be used afterwards. Does nothing
+   * for a single-threaded analyzer.
+   */
+  @Override
+  public void close() {
+    if (pool != null) {
+      pool.shutdown();
+    }
+  }
+
+  /** Writes the loaded movies to a binary snapshot that {@link #openSnapshot} can open. */
+  public void saveSnapshot(String snapshot_file) {
+    try {
+      MovieSnapshot.save(
+          current.get(), Paths.get(snapshot_file), dataSet == null ? null : Paths.get(dataSet));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private RunningTotals totals(MovieDataset d) {
+    if (d.totals == null) {
+      scanned(d.size);
+    }
+    return d.totals(pool);
+  }
+
+  private void scanned(int rows) {
+    if (metrics != null) {
+      metrics.scanned(rows);
+    }
+  }
+
+  /** Returns what has been recorded so far; requires {@link Builder#metrics(boolean)}. */
+  public Metrics getMetrics() {
+    if (metrics == null) {
+      throw new IllegalStateException("Metrics are not enabled for this analyzer");
+    }
+    return metrics.snapshot();
+  }
+
+  /**
+   * Registers a {@link MovieAnalyzerMXBean} for this analyzer's metrics with the platform MBean
+   * server, under {@code MovieAnalyzer:name=<name>}, and returns its object name.
+   */
+  public ObjectName registerMBean(String name) {
+    if (metrics == null) {
+      throw new IllegalStateException("Metrics are not enabled for this analyzer");
+    }
+    MovieAnalyzerMXBean bean =
+        new MovieAnalyzerMXBean() {
+          @Override
+          public Map<String, QueryStats> getQueries() {
+            return getMetrics().getQueries();
+          }
+
+          @Override
+          public QueryStats getLoads() {
+            return getMetrics().getLoads();
+          }
+
+          @Override
+          public long getRowsLoaded() {
+            return getMetrics().getRowsLoaded();
+          }
+
+          @Override
+          public long getRowsScanned() {
+            return getMetrics().getRowsScanned();
+          }
+
+          @Override
+          public long getBytesRead() {
+            return getMetrics().getBytesRead();
+          }
+
+          @Override
+          public int getMovieCount() {
+            return current.get().size;
           }
-          return null;
         };
+    try {
+      ObjectName objectName = new ObjectName("MovieAnalyzer", "name", ObjectName.quote(name));
+      ManagementFactory.getPlatformMBeanServer()
+          .registerMBean(new StandardMBean(bean, MovieAnalyzerMXBean.class, true), objectName);
+      return objectName;
+    } catch (JMException e) {
+      throw new IllegalStateException("Cannot register the metrics MBean " + name, e);
+    }
+  }
+
+  /** Recorded timings of one public method, or of loads; times are in nanoseconds. */
+  public static final class QueryStats {
+    private final long count;
+    private final long meanNanos;
+    private final long p50Nanos;
+    private final long p90Nanos;
+    private final long p99Nanos;
+    private final long maxNanos;
+    private final long allocatedBytes;
+
+    QueryStats(
+        long count,
+        long meanNanos,
+        long p50Nanos,
+        long p90Nanos,
+        long p99Nanos,
+        long maxNanos,
+        long allocatedBytes) {
+      this.count = count;
+      this.meanNanos = meanNanos;
+      this.p50Nanos = p50Nanos;
+      this.p90Nanos = p90Nanos;
+      this.p99Nanos = p99Nanos;
+      this.maxNanos = maxNanos;
+      this.allocatedBytes = allocatedBytes;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public long getMeanNanos() {
+      return meanNanos;
+    }
+
+    public long getP50Nanos() {
+      return p50Nanos;
+    }
+
+    public long getP90Nanos() {
+      return p90Nanos;
+    }
+
+    public long getP99Nanos() {
+      return p99Nanos;
+    }
+
+    public long getMaxNanos() {
+      return maxNanos;
+    }
+
+    /** Bytes allocated by the calling threads, summed over all calls; 0 for loads. */
+    public long getAllocatedBytes() {
+      return allocatedBytes;
+    }
+  }
+
+  /** A point-in-time copy of an analyzer's metrics. */
+  public static final class Metrics {
+    private final Map<String, QueryStats> queries;
+    private final QueryStats loads;
+    private final long rowsLoaded;
+    private final long rowsScanned;
+    private final long bytesRead;
+
+    Metrics(
+        Map<String, QueryStats> queries,
+        QueryStats loads,
+        long rowsLoaded,
+        long rowsScanned,
+        long bytesRead) {
+      this.queries = Collections.unmodifiableMap(queries);
+      this.loads = loads;
+      this.rowsLoaded = rowsLoaded;
+      this.rowsScanned = rowsScanned;
+      this.bytesRead = bytesRead;
+    }
+
+    /** Statistics per public query method that has been called, by method name. */
+    public Map<String, QueryStats> getQueries() {
+      return queries;
+    }
+
+    /** Time spent reading and parsing data set files and snapshots. */
+    public QueryStats getLoads() {
+      return loads;
+    }
+
+    public long getRowsLoaded() {
+      return rowsLoaded;
+    }
+
+    /** Rows visited to build aggregates and indexes, and by queries that scan every movie. */
+    public long getRowsScanned() {
+      return rowsScanned;
+    }
+
+    public long getBytesRead() {
+      return bytesRead;
+    }
+  }
+
+  /** Number of query calls answered from the result cache; 0 without a cache. */
+  public long getCacheHits() {
+    return cache == null ? 0 : cache.hits();
+  }
+
+  /** Number of query calls the result cache had to compute; 0 without a cache. */
+  public long getCacheMisses() {
+    return cache == null ? 0 : cache.misses();
+  }
+
+  /** Returns the loaded movies as a read-only list whose elements are built on access. */
+  public List<Movie> getMovies() {
+    MovieDataset d = current.get();
+    return new AbstractList<Movie>() {
+      @Override
+      public Movie get(int index) {
+        Objects.checkIndex(index, d.size);
+        return d.movie(index);
+      }
+
+      @Override
+      public int size() {
+        return d.size;
+      }
+    };
+  }
+
+  static MovieDataset read(Reader reader) throws IOException {
+    MovieDataset.Builder builder = new MovieDataset.Builder();
+    CsvTokenizer csv = new CsvTokenizer(reader);
+    csv.next(); // Header
+    while (csv.next()) {
+      String overview = csv.text(7);
+      if (overview.indexOf('"') >= 0) {
+        // Escaped quotes have always been kept as two characters, which overview lengths rely on.
+        overview = overview.replace("\"", "''");
+      }
+      builder.add(
+          csv.text(0),
+          csv.text(1),
+          csv.parseInt(2),
+          csv.text(3),
+          csv.parseInt(4),
+          csv.text(5),
+          csv.parseFloat(6),
+          overview,
+          overview.length(),
+          csv.parseInt(8),
+          csv.text(9),
+          csv.text(10),
+          csv.text(11),
+          csv.text(12),
+          csv.text(13),
+          csv.parseInt(14),
+          csv.parseLong(15));
+    }
+    return builder.build();
   }
 
   public Map<Integer, Integer> getMovieCountByYear() {
-    Map<Integer, Long> moviePerYear =
-        streamSupplier
-            .get()
-            .map(Movie::getYear)
-            .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+    if (!observed()) {
+      return movieCountByYear(current.get());
+    }
+    return cached(this::movieCountByYear, Collections::unmodifiableMap, "getMovieCountByYear");
+  }
+
+  private Map<Integer, Integer> movieCountByYear(MovieDataset d) {
+    RunningTotals t = totals(d);
     Map<Integer, Integer> result =
         new TreeMap<>((o1, o2) -> -o1.compareTo(o2)); // Sort by key in reversed order.
-    for (Map.Entry<Integer, Long> entry : moviePerYear.entrySet()) {
-      int value = Integer.parseInt(String.valueOf(entry.getValue()));
-      result.put(entry.getKey(), value);
+    for (int i = 0; i < t.moviesPerYear.length; i++) {
+      if (t.moviesPerYear[i] != 0) {
+        result.put(t.firstYear + i, t.moviesPerYear[i]);
+      }
     }
     return result;
   }
 
   public Map<String, Integer> getMovieCountByGenre() {
-    List<Movie> movieList = streamSupplier.get().collect(Collectors.toList());
-    Map<String, Integer> genreNum = new HashMap<>();
-    for (Movie movie : movieList) {
-      String[] rawGenre = movie.getGenre().replace("\"", "").split(", ");
-      for (String genre : rawGenre) {
-        if (genreNum.containsKey(genre)) {
-          int num = genreNum.get(genre);
-          num++;
-          genreNum.put(genre, num);
-        } else {
-          genreNum.put(genre, 1);
-        }
-      }
+    if (!observed()) {
+      return movieCountByGenre(current.get());
     }
+    return cached(this::movieCountByGenre, Collections::unmodifiableMap, "getMovieCountByGenre");
+  }
+
+  private Map<String, Integer> movieCountByGenre(MovieDataset d) {
+    int[] genreNum = totals(d).moviesPerGenre;
     Map<String, Integer> sorted = new LinkedHashMap<>();
-    genreNum.entrySet().stream()
+    IntStream.range(0, genreNum.length)
+        .filter(genre -> genreNum[genre] > 0)
+        .boxed()
         .sorted(
-            Map.Entry.<String, Integer>comparingByValue()
+            Comparator.comparingInt((Integer genre) -> genreNum[genre])
                 .reversed()
-                .thenComparing(Map.Entry.comparingByKey()))
-        .forEachOrdered(e -> sorted.put(e.getKey(), e.getValue()));
+                .thenComparing(d.genres::get))
+        .forEachOrdered(genre -> sorted.put(d.genres.get(genre), genreNum[genre]));
     return sorted;
   }
 
   public Map<List<String>, Integer> getCoStarCount() {
-    List<Movie> movieList = streamSupplier.get().collect(Collectors.toList());
-    Map<List<String>, Integer> coStarNum = new HashMap<>();
-    for (Movie movie : movieList) {
-      String[] stars =
-          new String[] {movie.getStar1(), movie.getStar2(), movie.getStar3(), movie.getStar4()};
-      Arrays.sort(stars);
-      for (int i = 0; i < 3; i++) {
-        for (int j = i + 1; j < 4; j++) {
-          List<String> coStars = new ArrayList<>();
-          coStars.add(stars[i]);
-          coStars.add(stars[j]);
-          if (coStarNum.containsKey(coStars)) {
-            int num = coStarNum.get(coStars);
-            num++;
-            coStarNum.put(coStars, num);
-          } else {
-            coStarNum.put(coStars, 1);
-          }
-        }
-      }
+    if (!observed()) {
+      return coStarCount(current.get());
+    }
+    return cached(this::coStarCount, Collections::unmodifiableMap, "getCoStarCount");
+  }
+
+  private Map<List<String>, Integer> coStarCount(MovieDataset d) {
+    RunningTotals totals = totals(d);
+    if (metrics != null && !totals.hasPairs()) {
+      scanned(d.size);
     }
-    return coStarNum;
+    return totals.pairs(pool).asMap(d.people);
   }
 
   public List<String> getTopMovies(int top_k, String by) {
+    if (!observed()) {
+      return topMovies(current.get(), top_k, by);
+    }
+    return cached(
+        d -> topMovies(d, top_k, by), Collections::unmodifiableList, "getTopMovies", top_k, by);
+  }
+
+  private List<String> topMovies(MovieDataset d, int top_k, String by) {
+    scanned(d.size);
     List<String> topMovies = new ArrayList<>();
-    List<Movie> movieList = streamSupplier.get().collect(Collectors.toList());
     if (by.equals("runtime")) {
-      movieList =
-          movieList.stream()
-              .sorted(
-                  Comparator.comparing(Movie::getRuntime).reversed().thenComparing(Movie::getTitle))
-              .collect(Collectors.toList());
-      for (int i = 0; i < top_k; i++) {
-        topMovies.add(movieList.get(i).getTitle());
+      TopK.Order order =
+          (a, b) -> {
+            int c = Integer.compare(d.runtime.get(b), d.runtime.get(a));
+            return c != 0 ? c : d.title.compare(a, b);
+          };
+      TopK top =
+          RowPartitions.aggregate(
+              pool,
+              d.size,
+              () -> new TopK(top_k, order),
+              (partial, from, to) -> {
+                for (int r = from; r < to; r++) {
+                  partial.offer(r);
+                }
+              },
+              TopK::merge);
+      for (int r : top.result()) {
+        topMovies.add(d.title.get(r));
       }
     } else if (by.equals("overview")) {
-      Map<String, Integer> movieOverview = new HashMap<>();
-      for (Movie movie : movieList) {
-        movieOverview.put(movie.getTitle(), movie.getOverview().length());
+      // Movies sharing a title count once, with the overview of the last of them.
+      Map<String, Integer> lastRowOfTitle =
+          RowPartitions.aggregate(
+              pool,
+              d.size,
+              HashMap::new,
+              (partial, from, to) -> {
+                for (int r = from; r < to; r++) {
+                  partial.put(d.title.get(r), r);
+                }
+              },
+              (left, right) -> {
+                left.putAll(right);
+                return left;
+              });
+      TopK top =
+          new TopK(
+              top_k,
+              (a, b) -> {
+                int c = Integer.compare(d.overviewLength.get(b), d.overviewLength.get(a));
+                return c != 0 ? c : d.title.compare(a, b);
+              });
+      for (int r : lastRowOfTitle.values()) {
+        top.offer(r);
+      }
+      for (int r : top.result()) {
+        topMovies.add(d.title.get(r));
       }
-      Map<String, Integer> sorted = new LinkedHashMap<>();
-      movieOverview.entrySet().stream()
-          .sorted(
-              Map.Entry.<String, Integer>comparingByValue()
-                  .reversed()
-                  .thenComparing(Map.Entry.comparingByKey()))
-          .forEachOrdered(e -> sorted.put(e.getKey(), e.getValue()));
-      topMovies.addAll(sorted.keySet());
-      topMovies = topMovies.subList(0, top_k);
     }
     return topMovies;
   }
 
+  /**
+   * Stars ranked by {@code by}, which names a {@link Metric} in lower case; any other value gives
+   * an empty list.
+   */
   public List<String> getTopStars(int top_k, String by) {
-    List<Movie> movieList = streamSupplier.get().collect(Collectors.toList());
-    List<String> topStars = new ArrayList<>();
-    if (by.equals("rating")) {
-      Map<String, double[]> starInfo = new LinkedHashMap<>();
-      for (Movie movie : movieList) {
-        String[] stars =
-            new String[] {movie.getStar1(), movie.getStar2(), movie.getStar3(), movie.getStar4()};
-        for (String star : stars) {
-          double[] info;
-          if (starInfo.containsKey(star)) {
-            info = starInfo.get(star);
-          } else {
-            info = new double[3];
-          }
-          info[0] += movie.getRating();
-          info[1] += 1;
-          info[2] = info[0] / info[1];
-          starInfo.put(star, info);
-        }
-      }
-      Map<String, Double> ratingAvg = new HashMap<>();
-      for (Map.Entry<String, double[]> entry : starInfo.entrySet()) {
-        String star = entry.getKey();
-        double avgRating = entry.getValue()[2];
-        ratingAvg.put(star, avgRating);
-      }
-      Map<String, Double> sorted = new LinkedHashMap<>();
-      ratingAvg.entrySet().stream()
-          .sorted(
-              Map.Entry.<String, Double>comparingByValue()
-                  .reversed()
-                  .thenComparing(Map.Entry.comparingByKey()))
-          .forEachOrdered(e -> sorted.put(e.getKey(), e.getValue()));
-      topStars.addAll(sorted.keySet());
-      topStars = topStars.subList(0, top_k);
-    } else if (by.equals("gross")) {
-      Map<String, long[]> starInfo = new LinkedHashMap<>();
-      for (Movie movie : movieList) {
-        String[] stars =
-            new String[] {movie.getStar1(), movie.getStar2(), movie.getStar3(), movie.getStar4()};
-        for (String star : stars) {
-          long[] info;
-          if (starInfo.containsKey(star)) {
-            info = starInfo.get(star);
-          } else {
-            info = new long[3];
-          }
-          if (movie.getGross() != 0) {
-            info[0] += movie.getGross();
-            info[1] += 1;
-            info[2] = info[0] / info[1];
-          }
-          starInfo.put(star, info);
-        }
-      }
-      Map<String, Long> grossAvg = new HashMap<>();
-      for (Map.Entry<String, long[]> entry : starInfo.entrySet()) {
-        String star = entry.getKey();
-        long avgRating = entry.getValue()[2];
-        grossAvg.put(star, avgRating);
-      }
-      Map<String, Long> sorted = new LinkedHashMap<>();
-      grossAvg.entrySet().stream()
-          .sorted(
-              Map.Entry.<String, Long>comparingByValue()
-                  .reversed()
-                  .thenComparing(Map.Entry.comparingByKey()))
-          .forEachOrdered(e -> sorted.put(e.getKey(), e.getValue()));
-      topStars.addAll(sorted.keySet());
-      topStars = topStars.subList(0, top_k);
-      return topStars;
+    if (!observed()) {
+      return topStars(current.get(), top_k, by);
     }
-    return topStars;
+    return cached(
+        d -> topStars(d, top_k, by), Collections::unmodifiableList, "getTopStars", top_k, by);
   }
 
-  public List<String> searchMovies(String genre, float min_rating, int max_runtime) {
-    List<Movie> movieList = streamSupplier.get().collect(Collectors.toList());
-    List<String> result = new ArrayList<>();
-    for (Movie movie : movieList) {
-      boolean condition1 = false;
-      boolean condition2 = false;
-      boolean condition3 = false;
-
-      String[] rawGenre = movie.getGenre().replace("\"", "").split(", ");
-      for (String gn : rawGenre) {
-        if (gn.equals(genre)) {
-          condition1 = true;
-          break;
-        }
-      }
+  private List<String> topStars(MovieDataset d, int top_k, String by) {
+    Metric metric = Metric.named(by);
+    return metric == null ? new ArrayList<>() : topEntities(d, Entity.STAR, metric, top_k);
+  }
 
-      float rating = movie.getRating();
-      if (rating >= min_rating) {
-        condition2 = true;
-      }
+  /**
+   * Names of the {@code top_k} entities of a kind with the highest {@code metric}, ties in name
+   * order. The sums behind a ranking are kept up to date by appends once built, and each ranking
+   * is sorted once per data set version and then only sliced.
+   */
+  public List<String> getTopEntities(Entity entity, Metric metric, int top_k) {
+    if (!observed()) {
+      return topEntities(current.get(), entity, metric, top_k);
+    }
+    return cached(
+        d -> topEntities(d, entity, metric, top_k),
+        Collections::unmodifiableList,
+        "getTopEntities",
+        entity,
+        metric,
+        top_k);
+  }
 
-      int runtime = movie.getRuntime();
-      if (runtime <= max_runtime) {
-        condition3 = true;
-      }
+  private List<String> topEntities(MovieDataset d, Entity entity, Metric metric, int top_k) {
+    RunningTotals totals = totals(d);
+    if (!totals.hasStats(entity)) {
+      scanned(d.size);
+    }
+    return totals.stats(entity, pool).ranking(metric).top(top_k);
+  }
 
-      if (condition1 && condition2 && condition3) {
-        result.add(movie.getTitle());
-      }
+  public List<String> searchMovies(String genre, float min_rating, int max_runtime) {
+    if (!observed()) {
+      return search(current.get(), genre, min_rating, max_runtime);
+    }
+    return cached(
+        d -> search(d, genre, min_rating, max_runtime),
+        Collections::unmodifiableList,
+        "searchMovies",
+        genre,
+        min_rating,
+        max_runtime);
+  }
+
+  private List<String> search(MovieDataset d, String genre, float min_rating, int max_runtime) {
+    int genreId = d.genres.find(genre);
+    if (genreId < 0) {
+      return new ArrayList<>();
+    }
+    if (d.searchIndex == null) {
+      scanned(d.size);
+    }
+    int[] rows = d.searchIndex().search(d, genreId, min_rating, max_runtime);
+    List<String> result = new ArrayList<>(rows.length);
+    for (int r : rows) {
+      result.add(d.title.get(r));
     }
-    Collections.sort(result);
     return result;
   }
 
+  /**
+   * Whether queries go through {@link #cached}. Without a cache or metrics each public query calls
+   * its implementation directly, so that no lambda, argument array or cache key is allocated.
+   */
+  private boolean observed() {
+    return cache != null || metrics != null;
+  }
+
+  /**
+   * Runs {@code query} against the current data set, through the result cache when one is
+   * configured. Cached results are shared between callers, so they are handed out read-only.
+   */
+  private <T> T cached(Function<MovieDataset, T> query, UnaryOperator<T> readOnly, Object... args) {
+    if (metrics == null) {
+      return answer(query, readOnly, args);
+    }
+    long allocated = AnalyzerMetrics.allocatedBytes();
+    long start = System.nanoTime();
+    try {
+      return answer(query, readOnly, args);
+    } finally {
+      long nanos = System.nanoTime() - start;
+      metrics.query((String) args[0], nanos, AnalyzerMetrics.allocatedBytes() - allocated);
+    }
+  }
+
+  private <T> T answer(Function<MovieDataset, T> query, UnaryOperator<T> readOnly, Object[] args) {
+    MovieDataset d = current.get();
+    if (cache == null) {
+      return query.apply(d);
+    }
+    // Keying on the version keeps a query that raced a reload from serving stale results, without
+    // the cache holding on to a replaced data set.
+    List<Object> key = new ArrayList<>(args.length + 1);
+    key.add(d.version);
+    key.addAll(Arrays.asList(args));
+    return cache.get(key, () -> readOnly.apply(query.apply(d)));
+  }
+
   public static void main(String[] args) {
     // Testing area
     MovieAnalyzer m = new MovieAnalyzer("resources/imdb_top_500.csv");
@@ -0,0 +1,21 @@
+import java.util.Map;
+
+/**
+ * Management interface of an analyzer with metrics enabled, registered by {@link
+ * MovieAnalyzer#registerMBean}. Every attribute is read when requested.
+ */
+public interface MovieAnalyzerMXBean {
+
+  /** Statistics per public query method, by method name. */
+  Map<String, MovieAnalyzer.QueryStats> getQueries();
+
+  MovieAnalyzer.QueryStats getLoads();
+
+  long getRowsLoaded();
+
+  long getRowsScanned();
+
+  long getBytesRead();
+
+  int getMovieCount();
+}
@@ -0,0 +1,531 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Immutable, column-oriented movie table. Numeric attributes are held in primitive columns indexed
+ * by row, and repeated strings (certificate, genre list, director and stars) as ids into
+ * dictionaries. Each distinct genre list is also split once into ids of the individual genres,
+ * stored flat with offsets, so the genres of row {@code r} are {@code genreIds[genreStart[l]]} up
+ * to {@code genreIds[genreStart[l + 1] - 1]} for {@code l = genreList.get(r)}.
+ *
+ * <p>Columns live in heap arrays, or off the heap when the data set was opened from a mapped
+ * snapshot. Columns may be longer than {@link #size}; only the first {@code size} rows belong to
+ * this data set. {@link #append} fills the spare capacity to build a larger data set without
+ * copying; off the heap the new rows go to direct buffers after the mapped ones.
+ */
+final class MovieDataset {
+
+  static final int STARS = 4;
+
+  private static final AtomicLong VERSIONS = new AtomicLong();
+
+  /** Distinct for every data set built in this JVM, including each one an append extends. */
+  final long version = VERSIONS.incrementAndGet();
+
+  final int size;
+  /** Null when the data set was loaded without its link and overview text. */
+  final TextColumn link;
+  final StringColumn title;
+  final IntColumn year;
+  final IntColumn certificate;
+  final ShortColumn runtime;
+  final IntColumn genreList;
+  final FloatColumn rating;
+  /** Null when the data set was loaded without its link and overview text. */
+  final TextColumn overview;
+  final IntColumn overviewLength;
+  final IntColumn score;
+  final IntColumn director;
+  final IntColumn[] stars;
+  final IntColumn votes;
+  final LongColumn gross;
+
+  final StringDictionary certificates;
+  final StringDictionary genreLists;
+  final StringDictionary genres;
+  final int[] genreStart;
+  final int[] genreIds;
+  /** Directors and stars share one dictionary, so a person has the same id in either role. */
+  final StringDictionary people;
+
+  /** Built on the first search, unless a snapshot already held it. */
+  volatile SearchIndex searchIndex;
+
+  /** Built on the first counting query, unless carried over from the data set this extends. */
+  volatile RunningTotals totals;
+
+  /** Set once an append has claimed the spare capacity of the columns. */
+  private final AtomicBoolean extended = new AtomicBoolean();
+
+  /** Wraps already complete columns without copying them. */
+  MovieDataset(
+      int size,
+      TextColumn link,
+      StringColumn title,
+      IntColumn year,
+      IntColumn certificate,
+      ShortColumn runtime,
+      IntColumn genreList,
+      FloatColumn rating,
+      TextColumn overview,
+      IntColumn overviewLength,
+      IntColumn score,
+      IntColumn director,
+      IntColumn[] stars,
+      IntColumn votes,
+      LongColumn gross,
+      StringDictionary certificates,
+      StringDictionary genreLists,
+      StringDictionary genres,
+      int[] genreStart,
+      int[] genreIds,
+      StringDictionary people) {
+    this.size = size;
+    this.link = link;
+    this.title = title;
+    this.year = year;
+    this.certificate = certificate;
+    this.runtime = runtime;
+    this.genreList = genreList;
+    this.rating = rating;
+    this.overview = overview;
+    this.overviewLength = overviewLength;
+    this.score = score;
+    this.director = director;
+    this.stars = stars;
+    this.votes = votes;
+    this.gross = gross;
+    this.certificates = certificates;
+    this.genreLists = genreLists;
+    this.genres = genres;
+    this.genreStart = genreStart;
+    this.genreIds = genreIds;
+    this.people = people;
+  }
+
+  SearchIndex searchIndex() {
+    SearchIndex index = searchIndex;
+    if (index == null) {
+      synchronized (this) {
+        index = searchIndex;
+        if (index == null) {
+          searchIndex = index = SearchIndex.build(this);
+        }
+      }
+    }
+    return index;
+  }
+
+  RunningTotals totals(ForkJoinPool pool) {
+    RunningTotals built = totals;
+    if (built == null) {
+      synchronized (this) {
+        built = totals;
+        if (built == null) {
+          totals = built = RunningTotals.build(this, pool);
+        }
+      }
+    }
+    return built;
+  }
+
+  /** Number of genre lists this data set has split; the shared dictionary may know more. */
+  int genreListCount() {
+    return genreStart.length - 1;
+  }
+
+  /**
+   * Returns a data set holding these rows followed by those of {@code more}. The first append to
+   * a data set writes the new rows into the spare capacity of its columns, which no row of this
+   * data set uses; later appends to the same data set copy heap columns instead, or only the
+   * appended rows of off-heap ones. Strings of {@code more} are interned into this data set's
+   * dictionaries, which both data sets then share.
+   */
+  MovieDataset append(MovieDataset more) {
+    int[] certificateIds = remap(more.certificates, certificates);
+    int[] peopleIds = remap(more.people, people);
+    int[] genreListIds = new int[more.genreListCount()];
+    for (int id = 0; id < genreListIds.length; id++) {
+      genreListIds[id] = genreLists.intern(more.genreLists.get(id));
+    }
+    int[] start = genreStart;
+    int[] ids = genreIds;
+    // Read once: concurrent appends may intern more lists into the shared dictionary meanwhile.
+    // Every list of these rows was interned above, so its id is below this count.
+    int lists = genreLists.size();
+    if (lists > genreListCount()) {
+      // Split every list that is new to this data set, including any another append interned.
+      start = Arrays.copyOf(genreStart, lists + 1);
+      ids = Arrays.copyOf(genreIds, genreIds.length * 2 + 16);
+      for (int list = genreListCount(); list < lists; list++) {
+        int[] split = splitGenreList(genreLists.get(list), genres);
+        if (start[list] + split.length > ids.length) {
+          ids = Arrays.copyOf(ids, (start[list] + split.length) * 2);
+        }
+        System.arraycopy(split, 0, ids, start[list], split.length);
+        start[list + 1] = start[list] + split.length;
+      }
+      ids = Arrays.copyOf(ids, start[lists]);
+    }
+    int total = size + more.size;
+    // Only the first data set extending this one may write past its rows in place.
+    boolean inPlace = extended.compareAndSet(false, true);
+    boolean text = link != null;
+    TextColumn link = text ? this.link.extend(total, inPlace) : null;
+    TextColumn overview = text ? this.overview.extend(total, inPlace) : null;
+    StringColumn title = this.title.grow(size, total, inPlace);
+    IntColumn year = this.year.grow(size, total, inPlace);
+    IntColumn certificate = this.certificate.grow(size, total, inPlace);
+    ShortColumn runtime = this.runtime.grow(size, total, inPlace);
+    IntColumn genreList = this.genreList.grow(size, total, inPlace);
+    FloatColumn rating = this.rating.grow(size, total, inPlace);
+    IntColumn overviewLength = this.overviewLength.grow(size, total, inPlace);
+    IntColumn score = this.score.grow(size, total, inPlace);
+    IntColumn director = this.director.grow(size, total, inPlace);
+    IntColumn[] stars = new IntColumn[STARS];
+    for (int k = 0; k < STARS; k++) {
+      stars[k] = this.stars[k].grow(size, total, inPlace);
+    }
+    IntColumn votes = this.votes.grow(size, total, inPlace);
+    LongColumn gross = this.gross.grow(size, total, inPlace);
+    for (int r = 0; r < more.size; r++) {
+      int row = size + r;
+      if (text && more.link != null) {
+        link.add(more.link, r);
+        overview.add(more.overview, r);
+      } else if (text) {
+        link.add(null);
+        overview.add(null);
+      }
+      title.set(row, more.title.get(r));
+      year.set(row, more.year.get(r));
+      certificate.set(row, certificateIds[more.certificate.get(r)]);
+      runtime.set(row, more.runtime.get(r));
+      genreList.set(row, genreListIds[more.genreList.get(r)]);
+      rating.set(row, more.rating.get(r));
+      overviewLength.set(row, more.overviewLength.get(r));
+      score.set(row, more.score.get(r));
+      director.set(row, peopleIds[more.director.get(r)]);
+      for (int k = 0; k < STARS; k++) {
+        stars[k].set(row, peopleIds[more.stars[k].get(r)]);
+      }
+      votes.set(row, more.votes.get(r));
+      gross.set(row, more.gross.get(r));
+    }
+    return new MovieDataset(
+        total,
+        link,
+        title,
+        year,
+        certificate,
+        runtime,
+        genreList,
+        rating,
+        overview,
+        overviewLength,
+        score,
+        director,
+        stars,
+        votes,
+        gross,
+        certificates,
+        genreLists,
+        genres,
+        start,
+        ids,
+        people);
+  }
+
+  /** Interns every string of {@code from} into {@code into}, returning the new id of each. */
+  static int[] remap(StringDictionary from, StringDictionary into) {
+    int[] ids = new int[from.size()];
+    for (int id = 0; id < ids.length; id++) {
+      ids[id] = into.intern(from.get(id));
+    }
+    return ids;
+  }
+
+  static int[] splitGenreList(String list, StringDictionary genres) {
+    String[] names = list.replace("\"", "").split(", ");
+    int[] ids = new int[names.length];
+    for (int i = 0; i < names.length; i++) {
+      ids[i] = genres.intern(names[i]);
+    }
+    return ids;
+  }
+
+  /** Materialises row {@code row} as a standalone {@link MovieAnalyzer.Movie}. */
+  MovieAnalyzer.Movie movie(int row) {
+    return new MovieAnalyzer.Movie(
+        link == null ? null : link.get(row),
+        title.get(row),
+        year.get(row),
+        certificates.get(certificate.get(row)),
+        runtime.get(row),
+        genreLists.get(genreList.get(row)),
+        rating.get(row),
+        overview == null ? null : overview.get(row),
+        overviewLength.get(row),
+        score.get(row),
+        people.get(director.get(row)),
+        people.get(stars[0].get(row)),
+        people.get(stars[1].get(row)),
+        people.get(stars[2].get(row)),
+        people.get(stars[3].get(row)),
+        votes.get(row),
+        gross.get(row));
+  }
+
+  static final class Builder {
+    private final boolean text;
+    private int size;
+    private String[] title = new String[256];
+    private int[] year = new int[256];
+    private int[] certificate = new int[256];
+    private short[] runtime = new short[256];
+    private int[] genreList = new int[256];
+    private float[] rating = new float[256];
+    private int[] overviewLength = new int[256];
+    private int[] score = new int[256];
+    private int[] director = new int[256];
+    private final int[][] stars = new int[STARS][256];
+    private int[] votes = new int[256];
+    private long[] gross = new long[256];
+
+    private final StringDictionary certificates = new StringDictionary();
+    private final StringDictionary genreLists = new StringDictionary();
+    private final StringDictionary genres = new StringDictionary();
+    private int[] genreStart = new int[65];
+    private int[] genreIds = new int[256];
+    private final StringDictionary people = new StringDictionary();
+    private TextColumn link;
+    private TextColumn overview;
+
+    Builder() {
+      this(true);
+    }
+
+    /** Without {@code text}, links and overviews are dropped and only overview lengths are kept. */
+    Builder(boolean text) {
+      this.text = text;
+      this.link = text ? new TextColumn(256) : null;
+      this.overview = text ? new TextColumn(256) : null;
+    }
+
+    /**
+     * The link column, for a caller that adds its text as bytes before calling {@link #addRow};
+     * null without text.
+     */
+    TextColumn link() {
+      return link;
+    }
+
+    /** The overview column, filled like {@link #link()}. */
+    TextColumn overview() {
+      return overview;
+    }
+
+    Builder add(
+        String link,
+        String title,
+        int year,
+        String certificate,
+        int runtime,
+        String genre,
+        float rating,
+        String overview,
+        int overviewLength,
+        int score,
+        String director,
+        String star1,
+        String star2,
+        String star3,
+        String star4,
+        int votes,
+        long gross) {
+      if (text) {
+        this.link.add(link);
+        this.overview.add(overview);
+      }
+      return addRow(
+          title,
+          year,
+          certificate,
+          runtime,
+          genre,
+          rating,
+          overviewLength,
+          score,
+          director,
+          star1,
+          star2,
+          star3,
+          star4,
+          votes,
+          gross);
+    }
+
+    /** Adds a row whose link and overview the caller has already added to their columns. */
+    Builder addRow(
+        String title,
+        int year,
+        String certificate,
+        int runtime,
+        String genre,
+        float rating,
+        int overviewLength,
+        int score,
+        String director,
+        String star1,
+        String star2,
+        String star3,
+        String star4,
+        int votes,
+        long gross) {
+      if (size == this.year.length) {
+        grow(size + 1);
+      }
+      int row = size++;
+      this.title[row] = title;
+      this.year[row] = year;
+      this.certificate[row] = certificates.intern(certificate);
+      this.runtime[row] = (short) runtime;
+      this.genreList[row] = internGenreList(genre);
+      this.rating[row] = rating;
+      this.overviewLength[row] = overviewLength;
+      this.score[row] = score;
+      this.director[row] = people.intern(director);
+      this.stars[0][row] = people.intern(star1);
+      this.stars[1][row] = people.intern(star2);
+      this.stars[2][row] = people.intern(star3);
+      this.stars[3][row] = people.intern(star4);
+      this.votes[row] = votes;
+      this.gross[row] = gross;
+      return this;
+    }
+
+    /**
+     * Appends every row of {@code part}. Its strings are interned in their own id order, so
+     * appending the builders of consecutive chunks assigns the same ids as one sequential pass.
+     */
+    Builder addAll(Builder part) {
+      int[] certificateIds = remap(part.certificates, certificates);
+      int[] genreListIds = new int[part.genreLists.size()];
+      for (int id = 0; id < genreListIds.length; id++) {
+        genreListIds[id] = internGenreList(part.genreLists.get(id));
+      }
+      int[] peopleIds = remap(part.people, people);
+      int rows = part.size;
+      if (size + rows > year.length) {
+        grow(size + rows);
+      }
+      if (text) {
+        for (int r = 0; r < rows; r++) {
+          link.add(part.link, r);
+          overview.add(part.overview, r);
+        }
+      }
+      System.arraycopy(part.title, 0, title, size, rows);
+      System.arraycopy(part.year, 0, year, size, rows);
+      System.arraycopy(part.runtime, 0, runtime, size, rows);
+      System.arraycopy(part.rating, 0, rating, size, rows);
+      System.arraycopy(part.overviewLength, 0, overviewLength, size, rows);
+      System.arraycopy(part.score, 0, score, size, rows);
+      System.arraycopy(part.votes, 0, votes, size, rows);
+      System.arraycopy(part.gross, 0, gross, size, rows);
+      for (int r = 0; r < rows; r++) {
+        certificate[size + r] = certificateIds[part.certificate[r]];
+        genreList[size + r] = genreListIds[part.genreList[r]];
+        director[size + r] = peopleIds[part.director[r]];
+        for (int k = 0; k < STARS; k++) {
+          stars[k][size + r] = peopleIds[part.stars[k][r]];
+        }
+      }
+      size += rows;
+      return this;
+    }
+
+    int size() {
+      return size;
+    }
+
+    /**
+     * Drops the rows added so far, keeping the dictionaries, so that the next rows build a data set
+     * whose ids agree with those built before.
+     */
+    void clear() {
+      size = 0;
+      if (text) {
+        link = new TextColumn(256);
+        overview = new TextColumn(256);
+      }
+    }
+
+    MovieDataset build() {
+      IntColumn[] starColumns = new IntColumn[STARS];
+      for (int k = 0; k < STARS; k++) {
+        starColumns[k] = new IntColumn(Arrays.copyOf(stars[k], size));
+      }
+      return new MovieDataset(
+          size,
+          link,
+          new StringColumn(Arrays.copyOf(title, size)),
+          new IntColumn(Arrays.copyOf(year, size)),
+          new IntColumn(Arrays.copyOf(certificate, size)),
+          new ShortColumn(Arrays.copyOf(runtime, size)),
+          new IntColumn(Arrays.copyOf(genreList, size)),
+          new FloatColumn(Arrays.copyOf(rating, size)),
+          overview,
+          new IntColumn(Arrays.copyOf(overviewLength, size)),
+          new IntColumn(Arrays.copyOf(score, size)),
+          new IntColumn(Arrays.copyOf(director, size)),
+          starColumns,
+          new IntColumn(Arrays.copyOf(votes, size)),
+          new LongColumn(Arrays.copyOf(gross, size)),
+          certificates,
+          genreLists,
+          genres,
+          Arrays.copyOf(genreStart, genreLists.size() + 1),
+          Arrays.copyOf(genreIds, genreStart[genreLists.size()]),
+          people);
+    }
+
+    private int internGenreList(String genre) {
+      int known = genreLists.size();
+      int id = genreLists.intern(genre);
+      if (id == known) {
+        int[] split = splitGenreList(genre, genres);
+        if (id + 1 == genreStart.length) {
+          genreStart = Arrays.copyOf(genreStart, id * 2 + 1);
+        }
+        int end = genreStart[id] + split.length;
+        if (end > genreIds.length) {
+          genreIds = Arrays.copyOf(genreIds, Math.max(end, genreIds.length * 2));
+        }
+        System.arraycopy(split, 0, genreIds, genreStart[id], split.length);
+        genreStart[id + 1] = end;
+      }
+      return id;
+    }
+
+    private void grow(int minCapacity) {
+      int capacity = Math.max(size * 2, minCapacity);
+      title = Arrays.copyOf(title, capacity);
+      year = Arrays.copyOf(year, capacity);
+      certificate = Arrays.copyOf(certificate, capacity);
+      runtime = Arrays.copyOf(runtime, capacity);
+      genreList = Arrays.copyOf(genreList, capacity);
+      rating = Arrays.copyOf(rating, capacity);
+      overviewLength = Arrays.copyOf(overviewLength, capacity);
+      score = Arrays.copyOf(score, capacity);
+      director = Arrays.copyOf(director, capacity);
+      for (int k = 0; k < STARS; k++) {
+        stars[k] = Arrays.copyOf(stars[k], capacity);
+      }
+      votes = Arrays.copyOf(votes, capacity);
+      gross = Arrays.copyOf(gross, capacity);
+    }
+  }
+}
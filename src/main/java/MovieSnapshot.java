@@ -0,0 +1,486 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+
+/**
+ * Versioned binary image of a {@link MovieDataset}. It holds the column arrays, the string
+ * dictionaries, the flattened genre ids and the search index, so opening one skips CSV parsing and
+ * index building altogether.
+ *
+ * <p>A fixed header carries a magic number, the format version, the size and modification time of
+ * the CSV the snapshot was built from, and a CRC-32 of the body. A snapshot whose header does not
+ * match is treated as stale rather than read.
+ *
+ * <p>Numbers are stored big-endian and each column contiguously, and text as UTF-8 in chunks of
+ * {@link TextColumn#CHUNK} bytes, so a snapshot can also be opened off the heap with its columns,
+ * text, search index and dictionaries read in place from the mapped file. Snapshots are not
+ * limited to 2 GB; only a single column is.
+ */
+final class MovieSnapshot {
+
+  static final long MAGIC = 0x494D4442534E4150L; // "IMDBSNAP"
+  static final int VERSION = 6;
+
+  private static final int HEADER = 8 + 4 + 8 + 8 + 8;
+  /** Written after the last chunk of a text column. */
+  private static final int END_OF_CHUNKS = -1;
+  private static final long NULL_TEXT = -1;
+
+  private MovieSnapshot() {}
+
+  /**
+   * Writes {@code data} to {@code file}, recording {@code source} (may be null) as the CSV it
+   * reflects. The snapshot is written beside {@code file} and moved into place, so readers never
+   * see a partial one.
+   */
+  static void save(MovieDataset data, Path file, Path source) throws IOException {
+    long sourceSize = -1;
+    long sourceModified = -1;
+    if (source != null) {
+      sourceSize = Files.size(source);
+      sourceModified = Files.getLastModifiedTime(source).toMillis();
+    }
+    Path dir = file.toAbsolutePath().getParent();
+    Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+    try {
+      try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+        channel.position(HEADER);
+        Sink out = new Sink(channel);
+        writeBody(data, out);
+        out.flush();
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        header.putLong(MAGIC).putInt(VERSION).putLong(sourceSize).putLong(sourceModified);
+        header.putLong(out.crc.getValue()).flip();
+        channel.write(header, 0);
+      }
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  /**
+   * Parses {@code csv} into a snapshot at {@code file} a window of {@code window} bytes at a time,
+   * spilling the rows of each window to temporary column files beside {@code file}. Only the
+   * dictionaries, genre lists and search index are built on the heap, so a data set larger than
+   * the heap can be converted and then opened off the heap.
+   */
+  static void convert(Path csv, Path file, boolean text, ForkJoinPool pool, int window)
+      throws IOException {
+    try (ColumnSpill spill = new ColumnSpill(file.toAbsolutePath().getParent(), text)) {
+      MappedCsvLoader.stream(csv, text, pool, window, spill::add);
+      save(spill.build(), file, csv);
+    }
+  }
+
+  /**
+   * Opens {@code file}, or returns null if it is missing, was written by another format version,
+   * is corrupt, or no longer matches {@code source} (unchecked when null). Snapshots without link
+   * and overview text are also stale when {@code text} is requested.
+   */
+  static MovieDataset open(Path file, Path source, boolean text) throws IOException {
+    return open(file, source, text, false);
+  }
+
+  /**
+   * Opens {@code file} as {@link #open(Path, Path, boolean)} does. When {@code offHeap}, the
+   * columns, text, search index and dictionaries are read in place from the mapped file rather than
+   * copied to the heap; only genre lists are loaded.
+   */
+  static MovieDataset open(Path file, Path source, boolean text, boolean offHeap)
+      throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < HEADER) {
+        return null;
+      }
+      ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER);
+      if (header.getLong() != MAGIC || header.getInt() != VERSION) {
+        return null;
+      }
+      long sourceSize = header.getLong();
+      long sourceModified = header.getLong();
+      if (source != null
+          && (sourceSize != Files.size(source)
+              || sourceModified != Files.getLastModifiedTime(source).toMillis())) {
+        return null;
+      }
+      long crc = header.getLong();
+      CRC32 actual = new CRC32();
+      for (long from = HEADER; from < size; from += Source.WINDOW) {
+        long length = Math.min(Source.WINDOW, size - from);
+        actual.update(channel.map(FileChannel.MapMode.READ_ONLY, from, length));
+      }
+      if (crc != actual.getValue()) {
+        return null;
+      }
+      MovieDataset data = readBody(new Source(channel, HEADER), offHeap);
+      return text && data.link == null ? null : data;
+    } catch (NoSuchFileException e) {
+      return null;
+    }
+  }
+
+  private static void writeBody(MovieDataset d, Sink out) throws IOException {
+    out.putInt(d.size);
+    boolean text = d.link != null;
+    out.putInt(text ? 1 : 0);
+    writeDictionary(d.certificates, out);
+    writeDictionary(d.genreLists, out);
+    writeDictionary(d.genres, out);
+    writeDictionary(d.people, out);
+    out.putInt(d.genreStart.length);
+    out.putInts(d.genreStart, d.genreStart.length);
+    out.putInt(d.genreIds.length);
+    out.putInts(d.genreIds, d.genreIds.length);
+    writeText(d.title, d.size, out);
+    if (text) {
+      writeText(new StringColumn(d.link), d.size, out);
+      writeText(new StringColumn(d.overview), d.size, out);
+    }
+    out.putInts(d.year, d.size);
+    out.putInts(d.certificate, d.size);
+    for (int r = 0; r < d.size; r++) {
+      out.ensure(2).putShort(d.runtime.get(r));
+    }
+    out.putInts(d.genreList, d.size);
+    for (int r = 0; r < d.size; r++) {
+      out.ensure(4).putFloat(d.rating.get(r));
+    }
+    out.putInts(d.overviewLength, d.size);
+    out.putInts(d.score, d.size);
+    out.putInts(d.director, d.size);
+    for (IntColumn column : d.stars) {
+      out.putInts(column, d.size);
+    }
+    out.putInts(d.votes, d.size);
+    for (int r = 0; r < d.size; r++) {
+      out.ensure(8).putLong(d.gross.get(r));
+    }
+    SearchIndex index = d.searchIndex();
+    out.putInt(index.rowsOfGenre.length);
+    for (IntColumn rows : index.rowsOfGenre) {
+      out.putInt(rows.capacity());
+      out.putInts(rows, rows.capacity());
+    }
+    out.putInts(index.byRating, d.size);
+    out.putInts(index.byRuntime, d.size);
+    out.putInts(index.byTitle, d.size);
+    out.putInts(index.titleRank, d.size);
+  }
+
+  private static MovieDataset readBody(Source in, boolean offHeap) throws IOException {
+    int size = in.getInt();
+    boolean text = in.getInt() != 0;
+    StringDictionary certificates = readDictionary(in, offHeap);
+    StringDictionary genreLists = readDictionary(in, offHeap);
+    StringDictionary genres = readDictionary(in, offHeap);
+    StringDictionary people = readDictionary(in, offHeap);
+    int[] genreStart = readArray(in);
+    int[] genreIds = readArray(in);
+    StringColumn title = new StringColumn(readText(in, size, offHeap));
+    if (!offHeap) {
+      title = new StringColumn(title.toArray(size));
+    }
+    TextColumn link = text ? readText(in, size, offHeap) : null;
+    TextColumn overview = text ? readText(in, size, offHeap) : null;
+    IntColumn year = readInts(in, size, offHeap);
+    IntColumn certificate = readInts(in, size, offHeap);
+    ShortBuffer runtimes = in.region(2L * size).asShortBuffer();
+    IntColumn genreList = readInts(in, size, offHeap);
+    FloatBuffer ratings = in.region(4L * size).asFloatBuffer();
+    IntColumn overviewLength = readInts(in, size, offHeap);
+    IntColumn score = readInts(in, size, offHeap);
+    IntColumn director = readInts(in, size, offHeap);
+    IntColumn[] stars = new IntColumn[MovieDataset.STARS];
+    for (int k = 0; k < stars.length; k++) {
+      stars[k] = readInts(in, size, offHeap);
+    }
+    IntColumn votes = readInts(in, size, offHeap);
+    LongBuffer grosses = in.region(8L * size).asLongBuffer();
+    ShortColumn runtime;
+    FloatColumn rating;
+    LongColumn gross;
+    if (offHeap) {
+      runtime = new ShortColumn(runtimes);
+      rating = new FloatColumn(ratings);
+      gross = new LongColumn(grosses);
+    } else {
+      runtime = new ShortColumn(new ShortColumn(runtimes).toArray(size));
+      rating = new FloatColumn(new FloatColumn(ratings).toArray(size));
+      gross = new LongColumn(new LongColumn(grosses).toArray(size));
+    }
+    MovieDataset data =
+        new MovieDataset(
+            size,
+            link,
+            title,
+            year,
+            certificate,
+            runtime,
+            genreList,
+            rating,
+            overview,
+            overviewLength,
+            score,
+            director,
+            stars,
+            votes,
+            gross,
+            certificates,
+            genreLists,
+            genres,
+            genreStart,
+            genreIds,
+            people);
+    IntColumn[] rowsOfGenre = new IntColumn[in.getInt()];
+    for (int genre = 0; genre < rowsOfGenre.length; genre++) {
+      rowsOfGenre[genre] = readInts(in, in.getInt(), offHeap);
+    }
+    data.searchIndex =
+        new SearchIndex(
+            rowsOfGenre,
+            readInts(in, size, offHeap),
+            readInts(in, size, offHeap),
+            readInts(in, size, offHeap),
+            readInts(in, size, offHeap));
+    return data;
+  }
+
+  /**
+   * Writes the strings of {@code dictionary} in the layout {@link StringDictionary} reads off the
+   * heap: their count, the size of the hash table and of the UTF-8 bytes, then the offset of each
+   * string in the bytes, the hash table and the bytes themselves.
+   */
+  private static void writeDictionary(StringDictionary dictionary, Sink out) throws IOException {
+    int count = dictionary.size();
+    int[] table = StringDictionary.writeTable(dictionary, count);
+    byte[][] strings = new byte[count][];
+    int[] offsets = new int[count + 1];
+    for (int id = 0; id < count; id++) {
+      strings[id] = dictionary.get(id).getBytes(StandardCharsets.UTF_8);
+      offsets[id + 1] = Math.addExact(offsets[id], strings[id].length);
+    }
+    out.putInt(count);
+    out.putInt(table.length);
+    out.putInt(offsets[count]);
+    out.putInts(offsets, offsets.length);
+    out.putInts(table, table.length);
+    for (byte[] string : strings) {
+      out.put(ByteBuffer.wrap(string));
+    }
+  }
+
+  private static StringDictionary readDictionary(Source in, boolean offHeap) throws IOException {
+    int count = in.getInt();
+    int slots = in.getInt();
+    int bytes = in.getInt();
+    StringDictionary base =
+        new StringDictionary(
+            in.region(4L * (count + 1)).asIntBuffer(),
+            in.region(4L * slots).asIntBuffer(),
+            in.region(bytes));
+    if (offHeap) {
+      return base;
+    }
+    StringDictionary dictionary = new StringDictionary();
+    for (int id = 0; id < count; id++) {
+      dictionary.intern(base.get(id));
+    }
+    return dictionary;
+  }
+
+  /** Reads {@code length} ints, leaving them in the mapped file when {@code offHeap}. */
+  private static IntColumn readInts(Source in, int length, boolean offHeap) throws IOException {
+    IntColumn column = new IntColumn(in.region(4L * length).asIntBuffer());
+    return offHeap ? column : new IntColumn(column.toArray(length));
+  }
+
+  /** Reads an int array written with its length before it. */
+  private static int[] readArray(Source in) throws IOException {
+    int length = in.getInt();
+    return readInts(in, length, false).toArray(length);
+  }
+
+  /**
+   * Writes the UTF-8 bytes of the first {@code size} rows packed into chunks, each preceded by its
+   * length and the last followed by {@link #END_OF_CHUNKS}. Then come each row's reference into
+   * the chunks as {@link TextColumn#ref} packs it, or {@link #NULL_TEXT}, and each row's length.
+   * Every pass places the rows alike, so no position is kept on the heap.
+   */
+  private static void writeText(StringColumn column, int size, Sink out) throws IOException {
+    int[] chunkLengths = new int[16];
+    TextColumn.Chunks chunks = new TextColumn.Chunks();
+    for (int r = 0; r < size; r++) {
+      ByteBuffer bytes = column.bytes(r);
+      if (bytes != null) {
+        chunks.place(bytes.remaining());
+        if (chunks.count > chunkLengths.length) {
+          chunkLengths = Arrays.copyOf(chunkLengths, chunks.count * 2);
+        }
+        chunkLengths[chunks.count - 1] = chunks.fill;
+      }
+    }
+    chunks = new TextColumn.Chunks();
+    for (int r = 0; r < size; r++) {
+      ByteBuffer bytes = column.bytes(r);
+      if (bytes != null) {
+        int count = chunks.count;
+        chunks.place(bytes.remaining());
+        if (chunks.count > count) {
+          out.putInt(chunkLengths[count]);
+        }
+        out.put(bytes);
+      }
+    }
+    out.putInt(END_OF_CHUNKS);
+    chunks = new TextColumn.Chunks();
+    for (int r = 0; r < size; r++) {
+      ByteBuffer bytes = column.bytes(r);
+      out.ensure(8).putLong(bytes == null ? NULL_TEXT : chunks.place(bytes.remaining()));
+    }
+    for (int r = 0; r < size; r++) {
+      ByteBuffer bytes = column.bytes(r);
+      out.putInt(bytes == null ? 0 : bytes.remaining());
+    }
+  }
+
+  /**
+   * Reads a text column written by {@link #writeText}. Off the heap its chunks, references and
+   * lengths stay in the mapped file; otherwise they are copied to heap arrays.
+   */
+  private static TextColumn readText(Source in, int size, boolean offHeap) throws IOException {
+    List<ByteBuffer> chunks = new ArrayList<>();
+    for (int length = in.getInt(); length != END_OF_CHUNKS; length = in.getInt()) {
+      ByteBuffer chunk = in.region(length);
+      if (!offHeap) {
+        byte[] bytes = new byte[length];
+        chunk.get(bytes);
+        chunk = ByteBuffer.wrap(bytes);
+      }
+      chunks.add(chunk);
+    }
+    LongColumn refs = new LongColumn(in.region(8L * size).asLongBuffer());
+    if (!offHeap) {
+      refs = new LongColumn(refs.toArray(size));
+    }
+    IntColumn lengths = readInts(in, size, offHeap);
+    return new TextColumn(chunks.toArray(new ByteBuffer[0]), refs, lengths, size, offHeap);
+  }
+
+  /**
+   * Sequential reader over a snapshot of any size. Small fields are read through a mapped window
+   * that moves along the file; columns are mapped as regions of their own, which may outlive the
+   * channel.
+   */
+  private static final class Source {
+    static final int WINDOW = 1 << 26;
+
+    private final FileChannel channel;
+    private long position;
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    Source(FileChannel channel, long position) {
+      this.channel = channel;
+      this.position = position;
+    }
+
+    /** Returns a buffer positioned at the next {@code bytes} bytes, and moves past them. */
+    ByteBuffer ensure(int bytes) throws IOException {
+      if (window == null
+          || position < windowStart
+          || position + bytes > windowStart + window.capacity()) {
+        long length = Math.min(Math.max(bytes, WINDOW), channel.size() - position);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        windowStart = position;
+      }
+      window.position((int) (position - windowStart));
+      position += bytes;
+      return window;
+    }
+
+    int getInt() throws IOException {
+      return ensure(4).getInt();
+    }
+
+    /** Maps the next {@code bytes} bytes read-only, and moves past them. */
+    ByteBuffer region(long bytes) throws IOException {
+      ByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, bytes);
+      position += bytes;
+      return region;
+    }
+  }
+
+  /** Buffered channel writer that keeps a running CRC of everything written. */
+  private static final class Sink {
+    final CRC32 crc = new CRC32();
+    private final FileChannel channel;
+    private final ByteBuffer buf = ByteBuffer.allocate(1 << 16);
+
+    Sink(FileChannel channel) {
+      this.channel = channel;
+    }
+
+    ByteBuffer ensure(int bytes) throws IOException {
+      if (buf.remaining() < bytes) {
+        flush();
+      }
+      return buf;
+    }
+
+    void putInt(int value) throws IOException {
+      ensure(4).putInt(value);
+    }
+
+    void putInts(int[] values, int length) throws IOException {
+      for (int i = 0; i < length; i++) {
+        ensure(4).putInt(values[i]);
+      }
+    }
+
+    void putInts(IntColumn values, int length) throws IOException {
+      for (int i = 0; i < length; i++) {
+        ensure(4).putInt(values.get(i));
+      }
+    }
+
+    /** Writes {@code bytes} as they are. */
+    void put(ByteBuffer bytes) throws IOException {
+      if (bytes.remaining() > buf.capacity()) {
+        flush();
+        write(bytes);
+      } else {
+        ensure(bytes.remaining()).put(bytes);
+      }
+    }
+
+    void flush() throws IOException {
+      buf.flip();
+      write(buf);
+      buf.clear();
+    }
+
+    private void write(ByteBuffer bytes) throws IOException {
+      crc.update(bytes.duplicate());
+      while (bytes.hasRemaining()) {
+        channel.write(bytes);
+      }
+    }
+  }
+}
@@ -0,0 +1,518 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * The queries of {@link MovieAnalyzer} for inputs larger than the heap. Each consumes movies one at
+ * a time and keeps only its accumulator: counters for counts, running sums for averages and
+ * bounded heaps for top-k. Peak memory depends on the number of distinct years, genres, titles,
+ * stars or star pairs a query tracks, not on the number of movies.
+ *
+ * <p>Results equal those of an analyzer loaded with the same movies. Every query consumes its
+ * iterator; to answer several from one read of the input, register them with a {@link #batch()}.
+ */
+public final class MovieStream {
+
+  private MovieStream() {}
+
+  /**
+   * Returns the movies of a CSV in the data set's format, header line included, parsed as the
+   * iterator advances. The caller closes {@code csv}; read errors surface as {@link
+   * UncheckedIOException}.
+   */
+  public static Iterator<MovieAnalyzer.Movie> movies(InputStream csv) {
+    CsvTokenizer tokenizer =
+        new CsvTokenizer(new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8)));
+    return new Iterator<MovieAnalyzer.Movie>() {
+      private boolean headerSkipped;
+      private MovieAnalyzer.Movie next;
+
+      @Override
+      public boolean hasNext() {
+        if (next == null) {
+          try {
+            if (!headerSkipped) {
+              headerSkipped = true;
+              tokenizer.next();
+            }
+            if (tokenizer.next()) {
+              next = movie(tokenizer);
+            }
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        }
+        return next != null;
+      }
+
+      @Override
+      public MovieAnalyzer.Movie next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        MovieAnalyzer.Movie movie = next;
+        next = null;
+        return movie;
+      }
+    };
+  }
+
+  private static MovieAnalyzer.Movie movie(CsvTokenizer csv) {
+    // Escaped quotes have always been kept as two characters, which overview lengths rely on.
+    String overview = csv.text(7).replace("\"", "''");
+    return new MovieAnalyzer.Movie(
+        csv.text(0),
+        csv.text(1),
+        csv.parseInt(2),
+        csv.text(3),
+        csv.parseInt(4),
+        csv.text(5),
+        csv.parseFloat(6),
+        overview,
+        csv.parseInt(8),
+        csv.text(9),
+        csv.text(10),
+        csv.text(11),
+        csv.text(12),
+        csv.text(13),
+        csv.parseInt(14),
+        csv.parseLong(15));
+  }
+
+  public static Map<Integer, Integer> getMovieCountByYear(Iterator<MovieAnalyzer.Movie> movies) {
+    return run(movies, new YearCounts()).result();
+  }
+
+  public static Map<String, Integer> getMovieCountByGenre(Iterator<MovieAnalyzer.Movie> movies) {
+    return run(movies, new GenreCounts()).result();
+  }
+
+  public static Map<List<String>, Integer> getCoStarCount(Iterator<MovieAnalyzer.Movie> movies) {
+    return run(movies, new CoStarCounts()).result();
+  }
+
+  public static List<String> getTopMovies(
+      Iterator<MovieAnalyzer.Movie> movies, int top_k, String by) {
+    if (by.equals("runtime")) {
+      return run(movies, new LongestRuntimes(top_k)).result(top_k);
+    } else if (by.equals("overview")) {
+      return run(movies, new OverviewLengths()).result(top_k);
+    }
+    return new ArrayList<>();
+  }
+
+  public static List<String> getTopStars(
+      Iterator<MovieAnalyzer.Movie> movies, int top_k, String by) {
+    MovieAnalyzer.Metric metric = MovieAnalyzer.Metric.named(by);
+    if (metric == null) {
+      return new ArrayList<>();
+    }
+    return run(movies, new StarTotals()).result(top_k, metric);
+  }
+
+  public static List<String> searchMovies(
+      Iterator<MovieAnalyzer.Movie> movies, String genre, float min_rating, int max_runtime) {
+    return run(movies, new Search(genre, min_rating, max_runtime)).result();
+  }
+
+  /** Starts a set of queries to answer together from one pass over the movies. */
+  public static Batch batch() {
+    return new Batch();
+  }
+
+  /**
+   * Queries registered to share one pass over the movies. Each registration returns a handle
+   * whose result is available once {@link #run} has consumed the movies. Queries that need the
+   * same accumulator share it: all top star queries keep one set of per-star sums, and top movie
+   * queries by runtime keep one heap, as deep as the largest {@code top_k}.
+   */
+  public static final class Batch {
+    private final List<Accumulator> accumulators = new ArrayList<>();
+    private YearCounts years;
+    private GenreCounts genres;
+    private CoStarCounts coStars;
+    private LongestRuntimes runtimes;
+    private OverviewLengths overviews;
+    private StarTotals stars;
+    private boolean done;
+
+    private Batch() {}
+
+    public Supplier<Map<Integer, Integer>> movieCountByYear() {
+      years = add(years, YearCounts::new);
+      YearCounts query = years;
+      return handle(query::result);
+    }
+
+    public Supplier<Map<String, Integer>> movieCountByGenre() {
+      genres = add(genres, GenreCounts::new);
+      GenreCounts query = genres;
+      return handle(query::result);
+    }
+
+    public Supplier<Map<List<String>, Integer>> coStarCount() {
+      coStars = add(coStars, CoStarCounts::new);
+      CoStarCounts query = coStars;
+      return handle(query::result);
+    }
+
+    public Supplier<List<String>> topMovies(int top_k, String by) {
+      if (by.equals("runtime")) {
+        runtimes = add(runtimes, () -> new LongestRuntimes(top_k));
+        LongestRuntimes query = runtimes;
+        query.deepen(top_k);
+        return handle(() -> query.result(top_k));
+      } else if (by.equals("overview")) {
+        overviews = add(overviews, OverviewLengths::new);
+        OverviewLengths query = overviews;
+        return handle(() -> query.result(top_k));
+      }
+      return handle(ArrayList::new);
+    }
+
+    public Supplier<List<String>> topStars(int top_k, String by) {
+      MovieAnalyzer.Metric metric = MovieAnalyzer.Metric.named(by);
+      if (metric == null) {
+        return handle(ArrayList::new);
+      }
+      stars = add(stars, StarTotals::new);
+      StarTotals query = stars;
+      return handle(() -> query.result(top_k, metric));
+    }
+
+    public Supplier<List<String>> searchMovies(String genre, float min_rating, int max_runtime) {
+      Search query = add(null, () -> new Search(genre, min_rating, max_runtime));
+      return handle(query::result);
+    }
+
+    /** Feeds every movie to all registered queries, once. A batch runs only once. */
+    public void run(Iterator<MovieAnalyzer.Movie> movies) {
+      if (done) {
+        throw new IllegalStateException("This batch has already run");
+      }
+      Row row = new Row();
+      while (movies.hasNext()) {
+        row.reset(movies.next());
+        for (Accumulator accumulator : accumulators) {
+          accumulator.accept(row);
+        }
+      }
+      done = true;
+    }
+
+    private <A extends Accumulator> A add(A shared, Supplier<A> create) {
+      if (done) {
+        throw new IllegalStateException("This batch has already run");
+      }
+      if (shared != null) {
+        return shared;
+      }
+      A accumulator = create.get();
+      accumulators.add(accumulator);
+      return accumulator;
+    }
+
+    private <T> Supplier<T> handle(Supplier<T> result) {
+      return () -> {
+        if (!done) {
+          throw new IllegalStateException("Results are available once the batch has run");
+        }
+        return result.get();
+      };
+    }
+  }
+
+  private static <A extends Accumulator> A run(Iterator<MovieAnalyzer.Movie> movies, A query) {
+    Row row = new Row();
+    while (movies.hasNext()) {
+      row.reset(movies.next());
+      query.accept(row);
+    }
+    return query;
+  }
+
+  /** One movie, with the derived values several queries need computed at most once. */
+  private static final class Row {
+    MovieAnalyzer.Movie movie;
+    private List<String> genres;
+    private String[] stars;
+
+    void reset(MovieAnalyzer.Movie movie) {
+      this.movie = movie;
+      this.genres = null;
+      this.stars = null;
+    }
+
+    List<String> genres() {
+      if (genres == null) {
+        genres = Arrays.asList(movie.getGenre().replace("\"", "").split(", "));
+      }
+      return genres;
+    }
+
+    String[] stars() {
+      if (stars == null) {
+        stars =
+            new String[] {movie.getStar1(), movie.getStar2(), movie.getStar3(), movie.getStar4()};
+      }
+      return stars;
+    }
+  }
+
+  private interface Accumulator {
+    void accept(Row row);
+  }
+
+  private static final class YearCounts implements Accumulator {
+    private final TreeMap<Integer, Integer> counts = new TreeMap<>(Comparator.reverseOrder());
+
+    @Override
+    public void accept(Row row) {
+      counts.merge(row.movie.getYear(), 1, Integer::sum);
+    }
+
+    Map<Integer, Integer> result() {
+      return new TreeMap<>(counts);
+    }
+  }
+
+  private static final class GenreCounts implements Accumulator {
+    private final Map<String, Integer> counts = new HashMap<>();
+
+    @Override
+    public void accept(Row row) {
+      for (String genre : row.genres()) {
+        counts.merge(genre, 1, Integer::sum);
+      }
+    }
+
+    Map<String, Integer> result() {
+      List<Map.Entry<String, Integer>> entries = new ArrayList<>(counts.entrySet());
+      entries.sort(
+          Map.Entry.<String, Integer>comparingByValue()
+              .reversed()
+              .thenComparing(Map.Entry.comparingByKey()));
+      Map<String, Integer> sorted = new LinkedHashMap<>();
+      for (Map.Entry<String, Integer> entry : entries) {
+        sorted.put(entry.getKey(), entry.getValue());
+      }
+      return sorted;
+    }
+  }
+
+  private static final class CoStarCounts implements Accumulator {
+    private final Map<List<String>, Integer> counts = new HashMap<>();
+
+    @Override
+    public void accept(Row row) {
+      String[] stars = row.stars();
+      for (int i = 0; i < stars.length - 1; i++) {
+        for (int j = i + 1; j < stars.length; j++) {
+          List<String> pair =
+              stars[i].compareTo(stars[j]) <= 0
+                  ? Arrays.asList(stars[i], stars[j])
+                  : Arrays.asList(stars[j], stars[i]);
+          counts.merge(pair, 1, Integer::sum);
+        }
+      }
+    }
+
+    Map<List<String>, Integer> result() {
+      return new HashMap<>(counts);
+    }
+  }
+
+  /** Orders title and value entries by value descending, then title. */
+  private static final Comparator<Map.Entry<String, Integer>> BY_VALUE =
+      Map.Entry.<String, Integer>comparingByValue()
+          .reversed()
+          .thenComparing(Map.Entry.comparingByKey());
+
+  private static final class LongestRuntimes implements Accumulator {
+    private Top<Map.Entry<String, Integer>> top;
+
+    LongestRuntimes(int k) {
+      top = new Top<>(k, BY_VALUE);
+    }
+
+    /** Keeps at least {@code k} movies; only possible before any movie was seen. */
+    void deepen(int k) {
+      if (k > top.k) {
+        top = new Top<>(k, BY_VALUE);
+      }
+    }
+
+    @Override
+    public void accept(Row row) {
+      MovieAnalyzer.Movie movie = row.movie;
+      top.offer(new AbstractMap.SimpleImmutableEntry<>(movie.getTitle(), movie.getRuntime()));
+    }
+
+    List<String> result(int k) {
+      return titles(top.result(), k);
+    }
+  }
+
+  /** Movies sharing a title count once, with the overview of the last of them. */
+  private static final class OverviewLengths implements Accumulator {
+    private final Map<String, Integer> lastOverviewOfTitle = new HashMap<>();
+
+    @Override
+    public void accept(Row row) {
+      String overview = row.movie.getOverview();
+      lastOverviewOfTitle.put(row.movie.getTitle(), overview == null ? 0 : overview.length());
+    }
+
+    List<String> result(int k) {
+      Top<Map.Entry<String, Integer>> top = new Top<>(k, BY_VALUE);
+      lastOverviewOfTitle.entrySet().forEach(top::offer);
+      return titles(top.result(), k);
+    }
+  }
+
+  private static List<String> titles(List<Map.Entry<String, Integer>> entries, int k) {
+    List<String> titles = new ArrayList<>();
+    for (Map.Entry<String, Integer> entry : entries.subList(0, Math.min(k, entries.size()))) {
+      titles.add(entry.getKey());
+    }
+    return titles;
+  }
+
+  /** Sums by the rules of {@link EntityStats}: gross and score means leave out rows of 0. */
+  private static final class StarSums {
+    int appearances;
+    double ratingSum;
+    long grossSum;
+    int grossed;
+    long votesSum;
+    long scoreSum;
+    int scored;
+
+    double value(MovieAnalyzer.Metric metric) {
+      switch (metric) {
+        case RATING:
+          return ratingSum / appearances;
+        case GROSS:
+          return grossed == 0 ? 0 : grossSum / grossed;
+        case VOTES:
+          return votesSum / appearances;
+        case SCORE:
+          return scored == 0 ? 0 : scoreSum / scored;
+        case MOVIES:
+          return appearances;
+        default:
+          throw new AssertionError(metric);
+      }
+    }
+  }
+
+  private static final class StarTotals implements Accumulator {
+    private final Map<String, StarSums> sums = new HashMap<>();
+
+    @Override
+    public void accept(Row row) {
+      MovieAnalyzer.Movie movie = row.movie;
+      for (String star : row.stars()) {
+        StarSums s = sums.computeIfAbsent(star, name -> new StarSums());
+        s.appearances++;
+        s.ratingSum += movie.getRating();
+        if (movie.getGross() != 0) {
+          s.grossSum += movie.getGross();
+          s.grossed++;
+        }
+        s.votesSum += movie.getVotes();
+        if (movie.getScore() != 0) {
+          s.scoreSum += movie.getScore();
+          s.scored++;
+        }
+      }
+    }
+
+    List<String> result(int k, MovieAnalyzer.Metric metric) {
+      Comparator<Map.Entry<String, StarSums>> byValue =
+          Comparator.comparingDouble(e -> e.getValue().value(metric));
+      Top<Map.Entry<String, StarSums>> top =
+          new Top<>(k, byValue.reversed().thenComparing(Map.Entry.comparingByKey()));
+      sums.entrySet().forEach(top::offer);
+      List<String> stars = new ArrayList<>();
+      for (Map.Entry<String, StarSums> entry : top.result()) {
+        stars.add(entry.getKey());
+      }
+      return stars;
+    }
+  }
+
+  private static final class Search implements Accumulator {
+    private final String genre;
+    private final float minRating;
+    private final int maxRuntime;
+    private final List<String> titles = new ArrayList<>();
+
+    Search(String genre, float minRating, int maxRuntime) {
+      this.genre = genre;
+      this.minRating = minRating;
+      this.maxRuntime = maxRuntime;
+    }
+
+    @Override
+    public void accept(Row row) {
+      MovieAnalyzer.Movie movie = row.movie;
+      if (movie.getRating() >= minRating
+          && movie.getRuntime() <= maxRuntime
+          && row.genres().contains(genre)) {
+        titles.add(movie.getTitle());
+      }
+    }
+
+    List<String> result() {
+      List<String> sorted = new ArrayList<>(titles);
+      Collections.sort(sorted);
+      return sorted;
+    }
+  }
+
+  /** Keeps the {@code k} least elements under {@code order} seen so far. */
+  private static final class Top<T> {
+    final int k;
+    private final Comparator<T> order;
+    private final PriorityQueue<T> heap;
+
+    Top(int k, Comparator<T> order) {
+      this.k = k;
+      this.order = order;
+      this.heap = new PriorityQueue<>(Math.max(1, k), order.reversed());
+    }
+
+    void offer(T candidate) {
+      if (heap.size() < k) {
+        heap.add(candidate);
+      } else if (k > 0 && order.compare(candidate, heap.peek()) < 0) {
+        heap.poll();
+        heap.add(candidate);
+      }
+    }
+
+    List<T> result() {
+      List<T> sorted = new ArrayList<>(heap);
+      sorted.sort(order);
+      return sorted;
+    }
+  }
+}
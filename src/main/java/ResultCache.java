@@ -0,0 +1,62 @@
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bounded least-recently-used cache of query results. Values are computed outside the lock, so a
+ * slow query never blocks lookups of other keys; two threads missing the same key may both compute
+ * it, and the later result wins.
+ */
+final class ResultCache {
+
+  private final Map<List<Object>, Object> entries;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  ResultCache(int capacity) {
+    this.entries =
+        new LinkedHashMap<List<Object>, Object>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<List<Object>, Object> eldest) {
+            return size() > capacity;
+          }
+        };
+  }
+
+  /** Returns the value cached under {@code key}, computing and caching it on a miss. */
+  @SuppressWarnings("unchecked")
+  <T> T get(List<Object> key, Supplier<T> compute) {
+    Object value;
+    synchronized (this) {
+      value = entries.get(key);
+    }
+    if (value != null) {
+      hits.increment();
+      return (T) value;
+    }
+    misses.increment();
+    T result = compute.get();
+    synchronized (this) {
+      entries.put(key, result);
+    }
+    return result;
+  }
+
+  synchronized void clear() {
+    entries.clear();
+  }
+
+  synchronized int size() {
+    return entries.size();
+  }
+
+  long hits() {
+    return hits.sum();
+  }
+
+  long misses() {
+    return misses.sum();
+  }
+}
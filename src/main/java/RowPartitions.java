@@ -0,0 +1,52 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * Runs an aggregation over row ranges. Without a pool it covers every row in one partial. With a
+ * pool, each worker fills its own partial for a contiguous range, and the partials are merged in
+ * row order on the calling thread.
+ */
+final class RowPartitions {
+
+  /** Accumulates rows {@code from} (inclusive) to {@code to} (exclusive) into {@code partial}. */
+  interface Accumulator<P> {
+    void accumulate(P partial, int from, int to);
+  }
+
+  private RowPartitions() {}
+
+  static <P> P aggregate(
+      ForkJoinPool pool,
+      int rows,
+      Supplier<P> newPartial,
+      Accumulator<P> accumulator,
+      BinaryOperator<P> merge) {
+    int partitions = pool == null ? 1 : Math.max(1, Math.min(pool.getParallelism(), rows));
+    if (partitions == 1) {
+      P partial = newPartial.get();
+      accumulator.accumulate(partial, 0, rows);
+      return partial;
+    }
+    List<ForkJoinTask<P>> tasks = new ArrayList<>(partitions);
+    for (int i = 0; i < partitions; i++) {
+      int from = (int) ((long) rows * i / partitions);
+      int to = (int) ((long) rows * (i + 1) / partitions);
+      tasks.add(
+          pool.submit(
+              () -> {
+                P partial = newPartial.get();
+                accumulator.accumulate(partial, from, to);
+                return partial;
+              }));
+    }
+    P result = tasks.get(0).join();
+    for (int i = 1; i < partitions; i++) {
+      result = merge.apply(result, tasks.get(i).join());
+    }
+    return result;
+  }
+}
@@ -0,0 +1,169 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Aggregates that appends keep up to date, so the counting queries cost time in the number of new
+ * rows rather than all rows: movies per year and per genre, and the {@link EntityStats} of each
+ * kind of entity that has been ranked. Those are built on the first ranking of their kind and
+ * extended by every append from then on. Co-star pair counts take far more memory, so they are
+ * only built on first request.
+ *
+ * <p>Instances are never modified once published, so any number of threads read them without
+ * locking. An append returns updated copies instead, and leaves the pair counts to be extended
+ * from the nearest earlier totals that had them, if and when they are asked for.
+ */
+final class RunningTotals {
+
+  /** The rows these totals cover. */
+  private MovieDataset data;
+
+  int firstYear;
+  int[] moviesPerYear = new int[0];
+  int[] moviesPerGenre = new int[0];
+
+  /** Entity sums by entity ordinal, each null until first requested. */
+  private final AtomicReferenceArray<EntityStats> entities =
+      new AtomicReferenceArray<>(MovieAnalyzer.Entity.values().length);
+
+  private volatile CoStarPairs pairs;
+  /** Pair counts of an earlier prefix of the rows, from which {@link #pairs} can be extended. */
+  private CoStarPairs seedPairs;
+  private int seedRows;
+
+  static RunningTotals build(MovieDataset d, ForkJoinPool pool) {
+    RunningTotals totals =
+        RowPartitions.aggregate(
+            pool,
+            d.size,
+            RunningTotals::new,
+            (partial, from, to) -> partial.add(d, from, to),
+            RunningTotals::merge);
+    totals.data = d;
+    return totals;
+  }
+
+  /**
+   * Returns the totals of {@code extended}, which must extend the rows covered here. Costs time in
+   * the number of new rows, distinct years and genres, and entities of each kind with sums; these
+   * totals stay unchanged.
+   */
+  RunningTotals append(MovieDataset extended) {
+    RunningTotals next = new RunningTotals();
+    next.firstYear = firstYear;
+    next.moviesPerYear = moviesPerYear.clone();
+    next.moviesPerGenre = moviesPerGenre.clone();
+    next.add(extended, data.size, extended.size);
+    for (int e = 0; e < entities.length(); e++) {
+      EntityStats stats = entities.get(e);
+      if (stats != null) {
+        next.entities.set(e, stats.append(extended, data.size));
+      }
+    }
+    next.data = extended;
+    CoStarPairs built = pairs;
+    next.seedPairs = built != null ? built : seedPairs;
+    next.seedRows = built != null ? data.size : seedRows;
+    return next;
+  }
+
+  boolean hasStats(MovieAnalyzer.Entity entity) {
+    return entities.get(entity.ordinal()) != null;
+  }
+
+  /** Returns the sums of {@code entity}, built on first request and never modified afterwards. */
+  EntityStats stats(MovieAnalyzer.Entity entity, ForkJoinPool pool) {
+    EntityStats stats = entities.get(entity.ordinal());
+    if (stats == null) {
+      synchronized (this) {
+        stats = entities.get(entity.ordinal());
+        if (stats == null) {
+          stats = EntityStats.build(data, entity, pool);
+          entities.set(entity.ordinal(), stats);
+        }
+      }
+    }
+    return stats;
+  }
+
+  boolean hasPairs() {
+    return pairs != null;
+  }
+
+  /** Returns the co-star pair counts, built on first request and never modified afterwards. */
+  CoStarPairs pairs(ForkJoinPool pool) {
+    CoStarPairs counted = pairs;
+    if (counted == null) {
+      synchronized (this) {
+        counted = pairs;
+        if (counted == null) {
+          MovieDataset d = data;
+          if (seedPairs != null) {
+            counted = seedPairs.copy();
+            counted.add(d, seedRows, d.size);
+          } else {
+            counted =
+                RowPartitions.aggregate(
+                    pool,
+                    d.size,
+                    CoStarPairs::new,
+                    (partial, from, to) -> partial.add(d, from, to),
+                    CoStarPairs::merge);
+          }
+          seedPairs = null;
+          pairs = counted;
+        }
+      }
+    }
+    return counted;
+  }
+
+  private void add(MovieDataset d, int from, int to) {
+    if (moviesPerGenre.length < d.genres.size()) {
+      moviesPerGenre = Arrays.copyOf(moviesPerGenre, d.genres.size());
+    }
+    for (int r = from; r < to; r++) {
+      addYear(d.year.get(r), 1);
+      int list = d.genreList.get(r);
+      for (int i = d.genreStart[list]; i < d.genreStart[list + 1]; i++) {
+        moviesPerGenre[d.genreIds[i]]++;
+      }
+    }
+  }
+
+  private void addYear(int year, int movies) {
+    if (moviesPerYear.length == 0) {
+      firstYear = year;
+      moviesPerYear = new int[1];
+    } else if (year < firstYear) {
+      int[] widened = new int[moviesPerYear.length + firstYear - year];
+      System.arraycopy(moviesPerYear, 0, widened, firstYear - year, moviesPerYear.length);
+      moviesPerYear = widened;
+      firstYear = year;
+    } else if (year - firstYear >= moviesPerYear.length) {
+      moviesPerYear = Arrays.copyOf(moviesPerYear, year - firstYear + 1);
+    }
+    moviesPerYear[year - firstYear] += movies;
+  }
+
+  /** Adds the totals of {@code other}, returning this instance. */
+  private RunningTotals merge(RunningTotals other) {
+    for (int i = 0; i < other.moviesPerYear.length; i++) {
+      if (other.moviesPerYear[i] != 0) {
+        addYear(other.firstYear + i, other.moviesPerYear[i]);
+      }
+    }
+    moviesPerGenre = sum(moviesPerGenre, other.moviesPerGenre);
+    return this;
+  }
+
+  private static int[] sum(int[] into, int[] other) {
+    if (into.length < other.length) {
+      into = Arrays.copyOf(into, other.length);
+    }
+    for (int i = 0; i < other.length; i++) {
+      into[i] += other[i];
+    }
+    return into;
+  }
+}
@@ -0,0 +1,59 @@
+/**
+ * Loops over a block of column values, written so that HotSpot's C2 compiler can turn them into
+ * SIMD instructions. Each loop reads and writes plain arrays at the loop index only, with no calls,
+ * branches or early exits. Callers copy a block of each column they need into scratch arrays with
+ * the column's bulk {@code get}, run the kernels over it, then act on the result row by row.
+ *
+ * <p>Filter masks hold -1 for a row that passes and 0 for one that does not, so that conditions
+ * combine with {@code &} rather than by branching.
+ */
+final class ScanKernels {
+
+  /** Rows per block; the scratch arrays of one block fit in a core's L1 data cache together. */
+  static final int BLOCK = 1024;
+
+  private ScanKernels() {}
+
+  /** Sets {@code mask[i]} to -1 where {@code values[i] >= min}, and to 0 elsewhere. */
+  static void atLeast(float[] values, int length, float min, int[] mask) {
+    for (int i = 0; i < length; i++) {
+      mask[i] = values[i] >= min ? -1 : 0;
+    }
+  }
+
+  /** Clears {@code mask[i]} where {@code values[i] > max}. */
+  static void andAtMost(short[] values, int length, int max, int[] mask) {
+    // Clamped to the range of a short, so the subtraction below cannot overflow.
+    int bound = Math.max(Short.MIN_VALUE - 1, Math.min(max, Short.MAX_VALUE));
+    for (int i = 0; i < length; i++) {
+      mask[i] &= ~((bound - values[i]) >> 31);
+    }
+  }
+
+  /** Clears {@code mask[i]} where {@code listed}, a mask per id, is 0 for id {@code ids[i]}. */
+  static void andListed(int[] ids, int length, int[] listed, int[] mask) {
+    for (int i = 0; i < length; i++) {
+      mask[i] &= listed[ids[i]];
+    }
+  }
+
+  /** Sets {@code flags[i]} to 1 where {@code values[i]} is nonzero, and to 0 elsewhere. */
+  static void nonZero(long[] values, int length, int[] flags) {
+    for (int i = 0; i < length; i++) {
+      flags[i] = (int) ((values[i] | -values[i]) >>> 63);
+    }
+  }
+
+  /** Sets {@code flags[i]} to 1 where {@code values[i]} is nonzero, and to 0 elsewhere. */
+  static void nonZero(int[] values, int length, int[] flags) {
+    for (int i = 0; i < length; i++) {
+      flags[i] = (values[i] | -values[i]) >>> 31;
+    }
+  }
+
+  static void widen(int[] values, int length, long[] into) {
+    for (int i = 0; i < length; i++) {
+      into[i] = values[i];
+    }
+  }
+}
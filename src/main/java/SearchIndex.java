@@ -0,0 +1,277 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Precomputed access paths for {@code searchMovies}: a posting list of rows per genre, rows
+ * ordered by rating and by runtime, and every row's rank in title order.
+ *
+ * <p>A search cuts the rating and runtime orders by binary search, scans the smallest of the three
+ * candidate sets while testing the other two conditions per row, and emits the matches by title
+ * rank, so no strings are compared at query time. When even the smallest set covers over a quarter
+ * of the rows, every row is tested instead, in blocks by {@link ScanKernels}.
+ */
+final class SearchIndex {
+
+  /** Ascending row ids of the movies listing each genre, indexed by genre id. */
+  final IntColumn[] rowsOfGenre;
+
+  /** Rows the index covers. */
+  final int size;
+  final IntColumn byRating;
+  final IntColumn byRuntime;
+  final IntColumn byTitle;
+  /** Each row's position in {@link #byTitle}. */
+  final IntColumn titleRank;
+
+  SearchIndex(
+      IntColumn[] rowsOfGenre,
+      IntColumn byRating,
+      IntColumn byRuntime,
+      IntColumn byTitle,
+      IntColumn titleRank) {
+    this.rowsOfGenre = rowsOfGenre;
+    this.size = byTitle.capacity();
+    this.byRating = byRating;
+    this.byRuntime = byRuntime;
+    this.byTitle = byTitle;
+    this.titleRank = titleRank;
+  }
+
+  /**
+   * Indexes {@code d}. The index of a data set held off the heap goes to temporary mapped files
+   * and is sorted in place there, so building it takes no heap space per row either.
+   */
+  static SearchIndex build(MovieDataset d) {
+    boolean offHeap = d.title.text() != null;
+    int[] counts = new int[d.genres.size()];
+    for (int r = 0; r < d.size; r++) {
+      int list = d.genreList.get(r);
+      for (int i = d.genreStart[list]; i < d.genreStart[list + 1]; i++) {
+        counts[d.genreIds[i]]++;
+      }
+    }
+    IntColumn[] postings = columns(counts, offHeap);
+    int[] filled = new int[counts.length];
+    for (int r = 0; r < d.size; r++) {
+      int list = d.genreList.get(r);
+      for (int i = d.genreStart[list]; i < d.genreStart[list + 1]; i++) {
+        int genre = d.genreIds[i];
+        postings[genre].set(filled[genre]++, r);
+      }
+    }
+    IntColumn[] orders = columns(new int[] {d.size, d.size, d.size, d.size}, offHeap);
+    IntColumn byRating = orders[0];
+    IntColumn byRuntime = orders[1];
+    IntColumn byTitle = orders[2];
+    IntColumn titleRank = orders[3];
+    // Ratings are never negative, so their float bits order like the values.
+    sortBy(byRating, d.size, r -> Float.floatToIntBits(d.rating.get(r)), offHeap);
+    sortBy(byRuntime, d.size, d.runtime::get, offHeap);
+    for (int r = 0; r < d.size; r++) {
+      byTitle.set(r, r);
+    }
+    // Equal titles keep row order.
+    TopK.sort(
+        byTitle,
+        d.size,
+        (a, b) -> {
+          int c = d.title.compare(a, b);
+          return c != 0 ? c : Integer.compare(a, b);
+        });
+    for (int rank = 0; rank < d.size; rank++) {
+      titleRank.set(byTitle.get(rank), rank);
+    }
+    return new SearchIndex(postings, byRating, byRuntime, byTitle, titleRank);
+  }
+
+  /** Returns the rows matching all three conditions, in title order. */
+  int[] search(MovieDataset d, int genre, float minRating, int maxRuntime) {
+    if (genre >= rowsOfGenre.length) {
+      // Interned by an append after this index was built, into a dictionary shared with it.
+      return new int[0];
+    }
+    int[] listed = listsNaming(d, genre);
+    IntColumn postings = rowsOfGenre[genre];
+    int posted = postings.capacity();
+    int ratingFrom = firstRatingAtLeast(d, minRating);
+    int runtimeTo = firstRuntimeAbove(d, maxRuntime);
+    int rated = d.size - ratingFrom;
+    int candidates = Math.min(posted, Math.min(rated, runtimeTo));
+    int[] matches = new int[candidates];
+    int m = 0;
+    if (candidates > d.size >>> 2) {
+      m = scan(d, listed, minRating, maxRuntime, matches);
+    } else if (posted <= rated && posted <= runtimeTo) {
+      for (int i = 0; i < posted; i++) {
+        int r = postings.get(i);
+        if (d.rating.get(r) >= minRating && d.runtime.get(r) <= maxRuntime) {
+          matches[m++] = titleRank.get(r);
+        }
+      }
+    } else if (rated <= runtimeTo) {
+      for (int i = ratingFrom; i < d.size; i++) {
+        int r = byRating.get(i);
+        if (d.runtime.get(r) <= maxRuntime && listed[d.genreList.get(r)] != 0) {
+          matches[m++] = titleRank.get(r);
+        }
+      }
+    } else {
+      for (int i = 0; i < runtimeTo; i++) {
+        int r = byRuntime.get(i);
+        if (d.rating.get(r) >= minRating && listed[d.genreList.get(r)] != 0) {
+          matches[m++] = titleRank.get(r);
+        }
+      }
+    }
+    return inTitleOrder(matches, m);
+  }
+
+  /** A mask per genre list id: -1 for the lists naming {@code genre}, 0 for the others. */
+  static int[] listsNaming(MovieDataset d, int genre) {
+    int[] listed = new int[d.genreListCount()];
+    for (int list = 0; list < listed.length; list++) {
+      for (int i = d.genreStart[list]; i < d.genreStart[list + 1]; i++) {
+        listed[list] |= d.genreIds[i] == genre ? -1 : 0;
+      }
+    }
+    return listed;
+  }
+
+  /**
+   * Tests every row against the three conditions a block at a time, writing the title rank of each
+   * match to {@code ranks} and returning how many there are. Reading the columns in order beats
+   * visiting a candidate set covering a large share of the rows one random row at a time.
+   */
+  int scan(MovieDataset d, int[] listed, float minRating, int maxRuntime, int[] ranks) {
+    float[] ratings = new float[ScanKernels.BLOCK];
+    short[] runtimes = new short[ScanKernels.BLOCK];
+    int[] lists = new int[ScanKernels.BLOCK];
+    int[] mask = new int[ScanKernels.BLOCK];
+    int m = 0;
+    for (int from = 0; from < d.size; from += ScanKernels.BLOCK) {
+      int length = Math.min(ScanKernels.BLOCK, d.size - from);
+      d.rating.get(from, ratings, length);
+      d.runtime.get(from, runtimes, length);
+      d.genreList.get(from, lists, length);
+      ScanKernels.atLeast(ratings, length, minRating, mask);
+      ScanKernels.andAtMost(runtimes, length, maxRuntime, mask);
+      ScanKernels.andListed(lists, length, listed, mask);
+      for (int i = 0; i < length; i++) {
+        if (mask[i] != 0) {
+          ranks[m++] = titleRank.get(from + i);
+        }
+      }
+    }
+    return m;
+  }
+
+  private int[] inTitleOrder(int[] ranks, int count) {
+    int[] rows = new int[count];
+    if (count < size >>> 6) {
+      Arrays.sort(ranks, 0, count);
+      for (int i = 0; i < count; i++) {
+        rows[i] = byTitle.get(ranks[i]);
+      }
+      return rows;
+    }
+    // Many matches: marking ranks in a bitset and reading it back is cheaper than sorting.
+    long[] marked = new long[(size + 63) >>> 6];
+    for (int i = 0; i < count; i++) {
+      marked[ranks[i] >>> 6] |= 1L << ranks[i];
+    }
+    int n = 0;
+    for (int word = 0; word < marked.length; word++) {
+      for (long bits = marked[word]; bits != 0; bits &= bits - 1) {
+        rows[n++] = byTitle.get(word << 6 | Long.numberOfTrailingZeros(bits));
+      }
+    }
+    return rows;
+  }
+
+  private int firstRatingAtLeast(MovieDataset d, float minRating) {
+    int lo = 0;
+    int hi = size;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (d.rating.get(byRating.get(mid)) >= minRating) {
+        hi = mid;
+      } else {
+        lo = mid + 1;
+      }
+    }
+    return lo;
+  }
+
+  private int firstRuntimeAbove(MovieDataset d, int maxRuntime) {
+    int lo = 0;
+    int hi = size;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (d.runtime.get(byRuntime.get(mid)) > maxRuntime) {
+        hi = mid;
+      } else {
+        lo = mid + 1;
+      }
+    }
+    return lo;
+  }
+
+  /**
+   * Fills the first {@code size} rows of {@code rows} with the row ids in ascending order of
+   * {@code key}, ties in row order.
+   */
+  private static void sortBy(IntColumn rows, int size, IntUnaryOperator key, boolean offHeap) {
+    if (!offHeap) {
+      long[] keys = new long[size];
+      for (int r = 0; r < size; r++) {
+        keys[r] = (long) key.applyAsInt(r) << 32 | r;
+      }
+      Arrays.sort(keys);
+      for (int i = 0; i < size; i++) {
+        rows.set(i, (int) keys[i]);
+      }
+      return;
+    }
+    for (int r = 0; r < size; r++) {
+      rows.set(r, r);
+    }
+    TopK.sort(
+        rows,
+        size,
+        (a, b) -> {
+          int c = Integer.compare(key.applyAsInt(a), key.applyAsInt(b));
+          return c != 0 ? c : Integer.compare(a, b);
+        });
+  }
+
+  /** Zeroed columns of the given lengths: heap arrays, or slices of one temporary mapped file. */
+  private static IntColumn[] columns(int[] lengths, boolean offHeap) {
+    IntColumn[] columns = new IntColumn[lengths.length];
+    if (!offHeap) {
+      for (int c = 0; c < lengths.length; c++) {
+        columns[c] = new IntColumn(new int[lengths[c]]);
+      }
+      return columns;
+    }
+    long total = 0;
+    for (int length : lengths) {
+      total += length;
+    }
+    IntBuffer file;
+    try {
+      file = ColumnSpill.scratch(4 * total).asIntBuffer();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    int at = 0;
+    for (int c = 0; c < lengths.length; c++) {
+      file.limit(at + lengths[c]).position(at);
+      columns[c] = new IntColumn(file.slice());
+      at += lengths[c];
+    }
+    return columns;
+  }
+}
@@ -0,0 +1,127 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+/**
+ * Column of shorts, stored like an {@link IntColumn}.
+ */
+final class ShortColumn {
+
+  /** Rows a new tail has room for at least, so that single rows are not copied one by one. */
+  private static final int MIN_TAIL = 1024;
+
+  private final short[] array;
+  private final ShortBuffer buffer;
+  /** Rows from {@link #split} on; null until rows are appended off the heap. */
+  private final ShortBuffer tail;
+  /** Rows read from {@link #buffer}. */
+  private final int split;
+
+  ShortColumn(short[] array) {
+    this.array = array;
+    this.buffer = null;
+    this.tail = null;
+    this.split = 0;
+  }
+
+  ShortColumn(ShortBuffer buffer) {
+    this(buffer, null, buffer.capacity());
+  }
+
+  private ShortColumn(ShortBuffer buffer, ShortBuffer tail, int split) {
+    this.array = null;
+    this.buffer = buffer;
+    this.tail = tail;
+    this.split = split;
+  }
+
+  short get(int row) {
+    if (array != null) {
+      return array[row];
+    }
+    return row < split ? buffer.get(row) : tail.get(row - split);
+  }
+
+  /** Copies {@code length} rows starting at {@code from} into {@code block}. */
+  void get(int from, short[] block, int length) {
+    if (array != null) {
+      System.arraycopy(array, from, block, 0, length);
+      return;
+    }
+    int head = Math.max(0, Math.min(length, split - from));
+    if (head > 0) {
+      ShortBuffer rows = buffer.duplicate();
+      rows.position(from);
+      rows.get(block, 0, head);
+    }
+    if (head < length) {
+      ShortBuffer rows = tail.duplicate();
+      rows.position(from + head - split);
+      rows.get(block, head, length - head);
+    }
+  }
+
+  void set(int row, short value) {
+    if (array != null) {
+      array[row] = value;
+    } else if (row < split) {
+      buffer.put(row, value);
+    } else {
+      tail.put(row - split, value);
+    }
+  }
+
+  /** Rows the column can hold; only a data set's first {@code size} of them are its own. */
+  int capacity() {
+    if (array != null) {
+      return array.length;
+    }
+    return split + (tail == null ? 0 : tail.capacity());
+  }
+
+  /**
+   * Returns a column holding the first {@code size} rows of this one with room for {@code rows}
+   * in all. With {@code inPlace}, which only the first data set to extend one of {@code size}
+   * rows may ask for, that is this column if it has the room and can write it. Otherwise heap
+   * columns are copied with room to double, and off-heap ones share their mapped rows and copy
+   * only their tail.
+   */
+  ShortColumn grow(int size, int rows, boolean inPlace) {
+    if (array != null) {
+      if (inPlace && array.length >= rows) {
+        return this;
+      }
+      return new ShortColumn(Arrays.copyOf(array, Math.max(rows, size * 2)));
+    }
+    if (inPlace && capacity() >= rows && (size >= split || !buffer.isReadOnly())) {
+      return this;
+    }
+    int kept = Math.min(size, split);
+    int carried = size - kept;
+    ShortBuffer grown = allocate(Math.max(rows - kept, Math.max(carried * 2, MIN_TAIL)));
+    if (carried > 0) {
+      ShortBuffer old = tail.duplicate();
+      old.limit(carried);
+      grown.put(old);
+      grown.clear();
+    }
+    return new ShortColumn(buffer, grown, kept);
+  }
+
+  /** Copies the first {@code length} rows into an array. */
+  short[] toArray(int length) {
+    if (array != null) {
+      return Arrays.copyOf(array, length);
+    }
+    short[] rows = new short[length];
+    get(0, rows, length);
+    return rows;
+  }
+
+  private static ShortBuffer allocate(int rows) {
+    return ByteBuffer.allocateDirect(Math.multiplyExact(rows, 2))
+        .order(ByteOrder.nativeOrder())
+        .asShortBuffer();
+  }
+}
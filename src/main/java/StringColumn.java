@@ -0,0 +1,80 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Column of strings: a String per row on the heap, or UTF-8 bytes in a {@link TextColumn}
+ * decoded on each read, so that a data set opened off the heap keeps no object per row.
+ */
+final class StringColumn {
+
+  private final String[] array;
+  private final TextColumn text;
+
+  StringColumn(String[] array) {
+    this.array = array;
+    this.text = null;
+  }
+
+  StringColumn(TextColumn text) {
+    this.array = null;
+    this.text = text;
+  }
+
+  String get(int row) {
+    return array != null ? array[row] : text.get(row);
+  }
+
+  /** Returns the UTF-8 bytes of {@code row}, or null for a null value. */
+  ByteBuffer bytes(int row) {
+    if (array == null) {
+      return text.bytes(row);
+    }
+    return array[row] == null ? null : ByteBuffer.wrap(array[row].getBytes(StandardCharsets.UTF_8));
+  }
+
+  /** Compares the values of two rows as {@link String#compareTo} does. */
+  int compare(int a, int b) {
+    return array != null ? array[a].compareTo(array[b]) : text.compare(a, b);
+  }
+
+  /**
+   * Sets row {@code row}. Off the heap rows are only added at the end, so {@code row} must be the
+   * first one past those already set.
+   */
+  void set(int row, String value) {
+    if (array != null) {
+      array[row] = value;
+    } else {
+      text.add(value);
+    }
+  }
+
+  /** The text column behind an off-heap column, or null for one on the heap. */
+  TextColumn text() {
+    return text;
+  }
+
+  /**
+   * Returns a column holding the first {@code size} rows with room for {@code rows} in all, this
+   * one if {@code inPlace} and it has the room, as {@link IntColumn#grow} does.
+   */
+  StringColumn grow(int size, int rows, boolean inPlace) {
+    if (array != null) {
+      if (inPlace && array.length >= rows) {
+        return this;
+      }
+      return new StringColumn(Arrays.copyOf(array, Math.max(rows, size * 2)));
+    }
+    return new StringColumn(text.extend(rows, inPlace));
+  }
+
+  /** Copies the first {@code length} rows into an array. */
+  String[] toArray(int length) {
+    String[] rows = new String[length];
+    for (int r = 0; r < length; r++) {
+      rows[r] = get(r);
+    }
+    return rows;
+  }
+}
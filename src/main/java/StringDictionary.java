@@ -0,0 +1,154 @@
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns dense int ids to distinct strings, in order of first appearance. Dictionaries only ever
+ * grow, so data sets extended by an append share them with the data set they extend; lookups are
+ * safe while another thread interns new strings.
+ *
+ * <p>A dictionary opened off the heap keeps the strings it started with in a mapped snapshot as
+ * UTF-8 bytes, with an open-addressing hash table to find them, and decodes a string each time it
+ * is read. Only strings interned afterwards are held on the heap.
+ */
+final class StringDictionary {
+
+  /** Ids below this are in the mapped base; 0 for a dictionary held entirely on the heap. */
+  private final int baseSize;
+  /** Offset of each base string in {@link #baseBytes}, plus the end of the last one. */
+  private final IntBuffer baseOffsets;
+  /** Base id plus one in the slot of each base string's hash, or 0 for an empty slot. */
+  private final IntBuffer baseTable;
+  private final ByteBuffer baseBytes;
+
+  private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+  private volatile String[] values = new String[64];
+  private volatile int size;
+
+  StringDictionary() {
+    this(null, null, null);
+  }
+
+  /**
+   * Wraps base strings held as UTF-8 bytes back to back, with the offset of each and the end of
+   * the last, and a hash table laid out by {@link #writeTable}.
+   */
+  StringDictionary(IntBuffer offsets, IntBuffer table, ByteBuffer bytes) {
+    this.baseSize = offsets == null ? 0 : offsets.capacity() - 1;
+    this.baseOffsets = offsets;
+    this.baseTable = table;
+    this.baseBytes = bytes;
+  }
+
+  int intern(String value) {
+    Integer id = ids.get(value);
+    if (id != null) {
+      return id;
+    }
+    int base = findInBase(value);
+    return base >= 0 ? base : add(value);
+  }
+
+  private synchronized int add(String value) {
+    Integer id = ids.get(value);
+    if (id != null) {
+      return id;
+    }
+    if (size == values.length) {
+      values = Arrays.copyOf(values, size * 2);
+    }
+    values[size] = value;
+    ids.put(value, baseSize + size);
+    return baseSize + size++;
+  }
+
+  /** Returns the id of {@code value}, or -1 if it was never interned. */
+  int find(String value) {
+    if (value == null) {
+      return -1;
+    }
+    Integer id = ids.get(value);
+    return id != null ? id : findInBase(value);
+  }
+
+  String get(int id) {
+    if (id >= baseSize) {
+      return values[id - baseSize];
+    }
+    return new String(baseString(id), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Compares the strings of two ids as {@link String#compareTo} would, comparing the UTF-8 bytes
+   * of base strings rather than decoding them.
+   */
+  int compare(int a, int b) {
+    if (a >= baseSize || b >= baseSize) {
+      return get(a).compareTo(get(b));
+    }
+    int fromA = baseOffsets.get(a);
+    int fromB = baseOffsets.get(b);
+    return TextColumn.compare(
+        baseBytes,
+        fromA,
+        baseOffsets.get(a + 1) - fromA,
+        baseBytes,
+        fromB,
+        baseOffsets.get(b + 1) - fromB);
+  }
+
+  int size() {
+    return baseSize + size;
+  }
+
+  /**
+   * Lays out the hash table of a base holding the first {@code count} strings: {@code
+   * table[slot]} holds id plus one for the string of each id, linearly probed from the slot of its
+   * hash. The table is a power of two at least twice {@code count} long.
+   */
+  static int[] writeTable(StringDictionary dictionary, int count) {
+    int[] table = new int[Integer.highestOneBit(Math.max(1, count) * 2 - 1) << 1];
+    int mask = table.length - 1;
+    for (int id = 0; id < count; id++) {
+      int slot = spread(dictionary.get(id).hashCode()) & mask;
+      while (table[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      table[slot] = id + 1;
+    }
+    return table;
+  }
+
+  private int findInBase(String value) {
+    if (baseSize == 0) {
+      return -1;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    int mask = baseTable.capacity() - 1;
+    for (int slot = spread(value.hashCode()) & mask; ; slot = (slot + 1) & mask) {
+      int entry = baseTable.get(slot);
+      if (entry == 0) {
+        return -1;
+      }
+      if (Arrays.equals(bytes, baseString(entry - 1))) {
+        return entry - 1;
+      }
+    }
+  }
+
+  private byte[] baseString(int id) {
+    int from = baseOffsets.get(id);
+    byte[] bytes = new byte[baseOffsets.get(id + 1) - from];
+    ByteBuffer string = baseBytes.duplicate();
+    string.position(from);
+    string.get(bytes);
+    return bytes;
+  }
+
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+}
@@ -0,0 +1,270 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Column of text kept as UTF-8 bytes, packed into large chunks and decoded to a String only when a
+ * row is read. Compared with a String per row this saves the object headers and the decoding of
+ * values nobody reads, which for overviews is nearly all of them.
+ *
+ * <p>Rows are only ever added at the end. Like the array columns of {@link MovieDataset}, a column
+ * may be extended in place for one larger data set while smaller ones keep reading their rows:
+ * {@link #extend} hands out a new column object that writes only to rows and chunk bytes the
+ * original never reads.
+ *
+ * <p>A column opened off the heap reads its chunks and the position of each row in place from a
+ * mapped snapshot; rows added to it go to direct buffers.
+ */
+final class TextColumn {
+
+  static final int CHUNK = 1 << 22;
+  private static final long NULL = -1;
+
+  private ByteBuffer[] chunks;
+  private int chunkCount;
+  /** Bytes used in the last chunk; writing may start a new chunk, never rewrite a used byte. */
+  private int fill;
+  /** Chunk index in the high half and offset in the low half, or {@link #NULL}. */
+  private LongColumn refs;
+  private IntColumn lengths;
+  private int size;
+  /** Whether chunks are allocated off the heap. */
+  private final boolean offHeap;
+
+  TextColumn(int capacity) {
+    this(
+        new ByteBuffer[4],
+        0,
+        CHUNK,
+        new LongColumn(new long[capacity]),
+        new IntColumn(new int[capacity]),
+        0,
+        false);
+  }
+
+  /**
+   * Wraps {@code size} rows held in {@code chunks}, with each row's chunk and offset in {@code
+   * refs} as {@link #ref} packs them, or -1 for a null row. Rows added later start a new chunk,
+   * off the heap when {@code offHeap}.
+   */
+  TextColumn(ByteBuffer[] chunks, LongColumn refs, IntColumn lengths, int size, boolean offHeap) {
+    this(chunks, chunks.length, CHUNK, refs, lengths, size, offHeap);
+  }
+
+  private TextColumn(
+      ByteBuffer[] chunks,
+      int chunkCount,
+      int fill,
+      LongColumn refs,
+      IntColumn lengths,
+      int size,
+      boolean offHeap) {
+    this.chunks = chunks;
+    this.chunkCount = chunkCount;
+    this.fill = fill;
+    this.refs = refs;
+    this.lengths = lengths;
+    this.size = size;
+    this.offHeap = offHeap;
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * Returns a column holding the same rows that further rows can be added to. With {@code
+   * inPlace} it shares this column's arrays and keeps filling its last chunk, which is only safe
+   * for the first extension of a column; otherwise rows are referenced from copied arrays and new
+   * text goes to new chunks.
+   */
+  TextColumn extend(int capacity, boolean inPlace) {
+    if (inPlace) {
+      return new TextColumn(chunks, chunkCount, fill, refs, lengths, size, offHeap);
+    }
+    int rows = Math.max(capacity, size);
+    return new TextColumn(
+        Arrays.copyOf(chunks, Math.max(4, chunkCount * 2)),
+        chunkCount,
+        CHUNK,
+        refs.grow(size, rows, false),
+        lengths.grow(size, rows, false),
+        size,
+        offHeap);
+  }
+
+  void add(String value) {
+    if (value == null) {
+      addNull();
+      return;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    add(bytes, 0, bytes.length);
+  }
+
+  void add(byte[] bytes, int from, int length) {
+    int offset = reserve(length);
+    ByteBuffer chunk = chunks[chunkCount - 1];
+    if (chunk.hasArray()) {
+      System.arraycopy(bytes, from, chunk.array(), chunk.arrayOffset() + offset, length);
+    } else {
+      ByteBuffer into = chunk.duplicate();
+      into.position(offset);
+      into.put(bytes, from, length);
+    }
+  }
+
+  /** Adds row {@code row} of {@code other}. */
+  void add(TextColumn other, int row) {
+    long ref = other.refs.get(row);
+    if (ref == NULL) {
+      addNull();
+      return;
+    }
+    ByteBuffer chunk = other.chunks[(int) (ref >>> 32)];
+    int length = other.lengths.get(row);
+    if (chunk.hasArray()) {
+      add(chunk.array(), chunk.arrayOffset() + (int) ref, length);
+    } else {
+      int offset = reserve(length);
+      ByteBuffer from = chunk.duplicate();
+      from.position((int) ref);
+      from.limit((int) ref + length);
+      ByteBuffer into = chunks[chunkCount - 1].duplicate();
+      into.position(offset);
+      into.put(from);
+    }
+  }
+
+  String get(int row) {
+    long ref = refs.get(row);
+    if (ref == NULL) {
+      return null;
+    }
+    ByteBuffer chunk = chunks[(int) (ref >>> 32)];
+    int length = lengths.get(row);
+    if (chunk.hasArray()) {
+      return new String(
+          chunk.array(), chunk.arrayOffset() + (int) ref, length, StandardCharsets.UTF_8);
+    }
+    byte[] bytes = new byte[length];
+    ByteBuffer from = chunk.duplicate();
+    from.position((int) ref);
+    from.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /** Returns a read-only view of the UTF-8 bytes of {@code row}, or null for a null value. */
+  ByteBuffer bytes(int row) {
+    long ref = refs.get(row);
+    if (ref == NULL) {
+      return null;
+    }
+    ByteBuffer bytes = chunks[(int) (ref >>> 32)].duplicate();
+    bytes.position((int) ref);
+    bytes.limit((int) ref + lengths.get(row));
+    return bytes.slice().asReadOnlyBuffer();
+  }
+
+  /** Number of UTF-8 bytes of {@code row}, or -1 for a null value. */
+  int length(int row) {
+    return refs.get(row) == NULL ? -1 : lengths.get(row);
+  }
+
+  /**
+   * Compares the values of two non-null rows as {@link String#compareTo} would, without decoding
+   * them.
+   */
+  int compare(int a, int b) {
+    long refA = refs.get(a);
+    long refB = refs.get(b);
+    return compare(
+        chunks[(int) (refA >>> 32)],
+        (int) refA,
+        lengths.get(a),
+        chunks[(int) (refB >>> 32)],
+        (int) refB,
+        lengths.get(b));
+  }
+
+  /**
+   * Compares two UTF-8 strings, at {@code fromX} and {@code fromY}, as {@link String#compareTo}
+   * would. UTF-8 bytes order like code points, which differs from the UTF-16 order of strings only
+   * where a supplementary character meets one from U+E000 to U+FFFF.
+   */
+  static int compare(ByteBuffer x, int fromX, int lengthX, ByteBuffer y, int fromY, int lengthY) {
+    int common = Math.min(lengthX, lengthY);
+    for (int i = 0; i < common; i++) {
+      int p = x.get(fromX + i) & 0xFF;
+      int q = y.get(fromY + i) & 0xFF;
+      if (p != q) {
+        // Both are lead bytes here, as the bytes before them match; surrogates sort first.
+        if (p >= 0xF0 && (q == 0xEE || q == 0xEF)) {
+          return -1;
+        }
+        if (q >= 0xF0 && (p == 0xEE || p == 0xEF)) {
+          return 1;
+        }
+        return p - q;
+      }
+    }
+    return lengthX - lengthY;
+  }
+
+  /** The reference of a row at {@code offset} in chunk {@code chunk}. */
+  static long ref(int chunk, int offset) {
+    return (long) chunk << 32 | offset;
+  }
+
+  private void addNull() {
+    ensureRow();
+    refs.set(size, NULL);
+    lengths.set(size++, 0);
+  }
+
+  /** Makes room for the next row's {@code length} bytes; returns their offset in the last chunk. */
+  private int reserve(int length) {
+    ensureRow();
+    if (chunkCount == 0 || CHUNK - fill < length) {
+      if (chunkCount == chunks.length) {
+        chunks = Arrays.copyOf(chunks, Math.max(4, chunkCount * 2));
+      }
+      int bytes = Math.max(CHUNK, length);
+      chunks[chunkCount++] =
+          offHeap ? ByteBuffer.allocateDirect(bytes) : ByteBuffer.wrap(new byte[bytes]);
+      fill = 0;
+    }
+    int offset = fill;
+    fill += length;
+    refs.set(size, ref(chunkCount - 1, offset));
+    lengths.set(size++, length);
+    return offset;
+  }
+
+  private void ensureRow() {
+    if (size == refs.capacity()) {
+      refs = refs.grow(size, Math.max(16, size + 1), true);
+      lengths = lengths.grow(size, Math.max(16, size + 1), true);
+    }
+  }
+
+  /**
+   * Lays out rows written to a file one after another in chunks of {@link #CHUNK} bytes: a row
+   * that does not fit the current chunk starts a new one, unless the current one is empty.
+   */
+  static final class Chunks {
+    int count;
+    int fill;
+
+    /** Returns the reference of the next row of {@code length} bytes. */
+    long place(int length) {
+      if (count == 0 || fill > 0 && length > CHUNK - fill) {
+        count++;
+        fill = 0;
+      }
+      long ref = ref(count - 1, fill);
+      fill += length;
+      return ref;
+    }
+  }
+}
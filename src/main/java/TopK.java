@@ -0,0 +1,125 @@
+import java.util.Arrays;
+
+/**
+ * Selects the best {@code k} of a stream of int candidates (row or dictionary ids) with a bounded
+ * heap, in O(n log k) time and O(k) space. The heap keeps the worst kept candidate at its root.
+ */
+final class TopK {
+
+  /** Orders candidates best first: a negative result means {@code a} ranks before {@code b}. */
+  interface Order {
+    int compare(int a, int b);
+  }
+
+  private final Order order;
+  private final int[] heap;
+  private int size;
+
+  TopK(int k, Order order) {
+    this.order = order;
+    this.heap = new int[Math.max(0, k)];
+  }
+
+  void offer(int candidate) {
+    if (size < heap.length) {
+      heap[size] = candidate;
+      siftUp(size++);
+    } else if (size > 0 && order.compare(candidate, heap[0]) < 0) {
+      heap[0] = candidate;
+      siftDown(0);
+    }
+  }
+
+  /** Offers every candidate kept by {@code other}, returning this instance. */
+  TopK merge(TopK other) {
+    for (int i = 0; i < other.size; i++) {
+      offer(other.heap[i]);
+    }
+    return this;
+  }
+
+  /** Returns the selected candidates, best first. */
+  int[] result() {
+    // The root is always the worst kept candidate, so popping fills the array from the back.
+    int[] work = Arrays.copyOf(heap, size);
+    int[] sorted = new int[size];
+    for (int n = size; n > 0; n--) {
+      sorted[n - 1] = work[0];
+      work[0] = work[n - 1];
+      siftDown(work, n - 1, 0);
+    }
+    return sorted;
+  }
+
+  /**
+   * Sorts the first {@code length} ids of {@code ids} in place, best first, with a heap sort: it
+   * takes no memory beyond the column, which may be mapped.
+   */
+  static void sort(IntColumn ids, int length, Order order) {
+    for (int i = (length >>> 1) - 1; i >= 0; i--) {
+      siftDown(ids, length, i, order);
+    }
+    // The root is the worst id left in the heap, so each pass moves it behind the heap.
+    for (int n = length - 1; n > 0; n--) {
+      int worst = ids.get(0);
+      ids.set(0, ids.get(n));
+      ids.set(n, worst);
+      siftDown(ids, n, 0, order);
+    }
+  }
+
+  private static void siftDown(IntColumn h, int n, int i, Order order) {
+    int candidate = h.get(i);
+    while (true) {
+      int child = 2 * i + 1;
+      if (child >= n) {
+        break;
+      }
+      if (child + 1 < n && order.compare(h.get(child + 1), h.get(child)) > 0) {
+        child++;
+      }
+      if (order.compare(h.get(child), candidate) <= 0) {
+        break;
+      }
+      h.set(i, h.get(child));
+      i = child;
+    }
+    h.set(i, candidate);
+  }
+
+  private void siftUp(int i) {
+    int candidate = heap[i];
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (order.compare(candidate, heap[parent]) <= 0) {
+        break;
+      }
+      heap[i] = heap[parent];
+      i = parent;
+    }
+    heap[i] = candidate;
+  }
+
+  private void siftDown(int i) {
+    siftDown(heap, size, i);
+  }
+
+  private void siftDown(int[] h, int n, int i) {
+    int candidate = h[i];
+    while (true) {
+      int child = 2 * i + 1;
+      if (child >= n) {
+        break;
+      }
+      if (child + 1 < n && order.compare(h[child + 1], h[child]) > 0) {
+        child++;
+      }
+      if (order.compare(h[child], candidate) <= 0) {
+        break;
+      }
+      h[i] = h[child];
+      i = child;
+    }
+    h[i] = candidate;
+  }
+}
@@ -0,0 +1,84 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Maps UTF-8 byte sequences to canonical strings, decoding each distinct sequence only once.
+ * Lookups hash and compare the bytes in place, so a repeated name costs no allocation.
+ */
+final class Utf8Interner {
+
+  private byte[][] keys = new byte[1024][];
+  private String[] values = new String[1024];
+  private int[] hashes = new int[1024];
+  private int size;
+
+  String intern(ByteBuffer buf, int from, int to) {
+    int hash = 1;
+    for (int p = from; p < to; p++) {
+      hash = 31 * hash + buf.get(p);
+    }
+    int mask = keys.length - 1;
+    int slot = mix(hash) & mask;
+    while (keys[slot] != null) {
+      if (hashes[slot] == hash && matches(keys[slot], buf, from, to)) {
+        return values[slot];
+      }
+      slot = (slot + 1) & mask;
+    }
+    byte[] key = new byte[to - from];
+    for (int i = 0; i < key.length; i++) {
+      key[i] = buf.get(from + i);
+    }
+    String value = new String(key, StandardCharsets.UTF_8);
+    keys[slot] = key;
+    values[slot] = value;
+    hashes[slot] = hash;
+    if (++size > keys.length / 2) {
+      rehash();
+    }
+    return value;
+  }
+
+  int size() {
+    return size;
+  }
+
+  private static boolean matches(byte[] key, ByteBuffer buf, int from, int to) {
+    if (key.length != to - from) {
+      return false;
+    }
+    for (int i = 0; i < key.length; i++) {
+      if (key[i] != buf.get(from + i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int mix(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  private void rehash() {
+    byte[][] oldKeys = keys;
+    String[] oldValues = values;
+    int[] oldHashes = hashes;
+    int capacity = oldKeys.length * 2;
+    keys = new byte[capacity][];
+    values = new String[capacity];
+    hashes = new int[capacity];
+    int mask = capacity - 1;
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != null) {
+        int slot = mix(oldHashes[i]) & mask;
+        while (keys[slot] != null) {
+          slot = (slot + 1) & mask;
+        }
+        keys[slot] = oldKeys[i];
+        values[slot] = oldValues[i];
+        hashes[slot] = oldHashes[i];
+      }
+    }
+  }
+}
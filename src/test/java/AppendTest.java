@@ -0,0 +1,129 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AppendTest {
+    private static final Path CSV = Paths.get("resources", "imdb_top_500.csv");
+
+    private static Path part(Path dir, String name, List<String> lines, int from, int to) throws IOException {
+        List<String> part = new ArrayList<>();
+        part.add(lines.get(0));
+        part.addAll(lines.subList(from, to));
+        return Files.write(dir.resolve(name), part, StandardCharsets.UTF_8);
+    }
+
+    private static void assertSameAnswers(MovieAnalyzer expected, MovieAnalyzer actual) {
+        assertEquals(expected.getMovies().size(), actual.getMovies().size());
+        assertEquals(expected.getMovieCountByYear(), actual.getMovieCountByYear());
+        assertEquals(expected.getMovieCountByGenre(), actual.getMovieCountByGenre());
+        assertEquals(expected.getCoStarCount(), actual.getCoStarCount());
+        for (String by : new String[]{"runtime", "overview"}) {
+            assertEquals(expected.getTopMovies(50, by), actual.getTopMovies(50, by));
+        }
+        for (String by : new String[]{"rating", "gross"}) {
+            assertEquals(expected.getTopStars(80, by), actual.getTopStars(80, by));
+        }
+        assertEquals(expected.searchMovies("Drama", 8.0f, 150), actual.searchMovies("Drama", 8.0f, 150));
+        assertEquals(expected.searchMovies("Western", 7.5f, 200), actual.searchMovies("Western", 7.5f, 200));
+    }
+
+    @Test
+    void appendedCsvAnswersLikeTheWholeFile(@TempDir Path dir) throws IOException {
+        List<String> lines = Files.readAllLines(CSV, StandardCharsets.UTF_8);
+        MovieAnalyzer expected = new MovieAnalyzer(CSV.toString());
+
+        // Appended before any aggregate exists: the first query builds them over every row.
+        MovieAnalyzer cold = new MovieAnalyzer(part(dir, "a.csv", lines, 1, 201).toString());
+        cold.appendCsv(part(dir, "b.csv", lines, 201, lines.size()).toString());
+        assertSameAnswers(expected, cold);
+
+        // Appended after every query ran: the aggregates are updated from the new rows.
+        MovieAnalyzer warm = new MovieAnalyzer(part(dir, "c.csv", lines, 1, 101).toString());
+        warm.getMovieCountByYear();
+        warm.getTopStars(10, "rating");
+        warm.getCoStarCount();
+        warm.searchMovies("Drama", 8.0f, 150);
+        warm.appendCsv(part(dir, "d.csv", lines, 101, 301).toString());
+        warm.appendCsv(part(dir, "e.csv", lines, 301, lines.size()).toString());
+        assertSameAnswers(expected, warm);
+    }
+
+    @Test
+    void appendedMoviesAnswerLikeTheWholeFile(@TempDir Path dir) throws IOException {
+        List<String> lines = Files.readAllLines(CSV, StandardCharsets.UTF_8);
+        MovieAnalyzer expected = new MovieAnalyzer(CSV.toString());
+        List<MovieAnalyzer.Movie> rest = new MovieAnalyzer(part(dir, "rest.csv", lines, 251, lines.size()).toString())
+                .getMovies();
+        // Text is kept by default, so the movies round-trip with it.
+        assertNotNull(rest.get(0).getOverview());
+
+        MovieAnalyzer analyzer = MovieAnalyzer.builder(part(dir, "first.csv", lines, 1, 251).toString())
+                .cacheSize(16).build();
+        Map<List<String>, Integer> before = analyzer.getCoStarCount();
+        Map<List<String>, Integer> copy = new HashMap<>(before);
+        analyzer.append(rest.subList(0, 100).toArray(new MovieAnalyzer.Movie[0]));
+        analyzer.append(rest.subList(100, rest.size()).toArray(new MovieAnalyzer.Movie[0]));
+        assertSameAnswers(expected, analyzer);
+        // Results handed out earlier keep describing the rows they were computed from.
+        assertEquals(copy, before);
+    }
+
+    @Test
+    void moviesWithoutTextKeepTheirOverviewLengths(@TempDir Path dir) throws IOException {
+        List<String> lines = Files.readAllLines(CSV, StandardCharsets.UTF_8);
+        MovieAnalyzer expected = new MovieAnalyzer(CSV.toString());
+        List<MovieAnalyzer.Movie> rest =
+                MovieAnalyzer.builder(part(dir, "rest.csv", lines, 251, lines.size()).toString())
+                        .text(false).build().getMovies();
+        assertNull(rest.get(0).getOverview());
+
+        MovieAnalyzer analyzer = MovieAnalyzer.builder(part(dir, "first.csv", lines, 1, 251).toString())
+                .text(false).build();
+        analyzer.append(rest.toArray(new MovieAnalyzer.Movie[0]));
+        assertSameAnswers(expected, analyzer);
+    }
+
+    @Test
+    void missingNamesAppendLikeBlankCsvFields(@TempDir Path dir) throws IOException {
+        List<String> lines = Files.readAllLines(CSV, StandardCharsets.UTF_8);
+        Path first = part(dir, "first.csv", lines, 1, 101);
+        Path blank = Files.write(dir.resolve("blank.csv"), List.of(lines.get(0),
+                "link,Untitled,2001,,99 min,,7.9,overview,70,,,,,,1234,\"5,678\""), StandardCharsets.UTF_8);
+        MovieAnalyzer expected = new MovieAnalyzer(first.toString());
+        expected.getTopStars(10, "rating");
+        expected.appendCsv(blank.toString());
+
+        MovieAnalyzer analyzer = new MovieAnalyzer(first.toString());
+        analyzer.getTopStars(10, "rating");
+        analyzer.append(new MovieAnalyzer.Movie("link", "Untitled", 2001, null, 99, null, 7.9f, "overview",
+                70, null, null, null, null, null, 1234, 5678));
+        assertSameAnswers(expected, analyzer);
+        MovieAnalyzer.Movie added = analyzer.getMovies().get(100);
+        assertEquals("", added.getCertificate());
+        assertEquals("", added.getDirector());
+        assertEquals("", added.getStar4());
+    }
+
+    @Test
+    void reloadDropsAppendedMovies(@TempDir Path dir) throws IOException {
+        List<String> lines = Files.readAllLines(CSV, StandardCharsets.UTF_8);
+        MovieAnalyzer analyzer = new MovieAnalyzer(part(dir, "a.csv", lines, 1, 101).toString());
+        Map<Integer, Integer> years = analyzer.getMovieCountByYear();
+        analyzer.appendCsv(part(dir, "b.csv", lines, 101, 201).toString());
+        assertEquals(200, analyzer.getMovies().size());
+        analyzer.reload();
+        assertEquals(100, analyzer.getMovies().size());
+        assertEquals(years, analyzer.getMovieCountByYear());
+    }
+}
@@ -0,0 +1,134 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentAccessTest {
+    private static final Path CSV = Paths.get("resources", "imdb_top_500.csv");
+
+    private static Path part(Path dir, String name, List<String> lines, int from, int to) throws IOException {
+        List<String> part = new ArrayList<>();
+        part.add(lines.get(0));
+        part.addAll(lines.subList(from, to));
+        return Files.write(dir.resolve(name), part, StandardCharsets.UTF_8);
+    }
+
+    private static int sum(Map<?, Integer> counts) {
+        return counts.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    @Test
+    void readersOnlySeeWholeStatesWhileAppendsAndReloadsSwapIn(@TempDir Path dir) throws Exception {
+        List<String> lines = Files.readAllLines(CSV, StandardCharsets.UTF_8);
+        Path first = part(dir, "first.csv", lines, 1, 101);
+        List<Path> batches = new ArrayList<>();
+        for (int from = 101; from < lines.size(); from += 100) {
+            batches.add(part(dir, "batch" + from + ".csv", lines, from, Math.min(lines.size(), from + 100)));
+        }
+        MovieAnalyzer analyzer = MovieAnalyzer.builder(first.toString()).parallelism(2).build();
+        MovieAnalyzer full = new MovieAnalyzer(CSV.toString());
+
+        AtomicBoolean writing = new AtomicBoolean(true);
+        Set<Integer> seen = ConcurrentHashMap.newKeySet();
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            results.add(readers.submit(() -> {
+                while (writing.get()) {
+                    // One call answers from one state: its counts always agree with each other.
+                    int movies = sum(analyzer.getMovieCountByYear());
+                    assertEquals(0, movies % 100);
+                    seen.add(movies);
+                    Map<String, Integer> genres = analyzer.getMovieCountByGenre();
+                    assertTrue(sum(genres) >= 100);
+                    assertEquals(0, sum(analyzer.getCoStarCount()) % 600);
+                    assertFalse(analyzer.getTopStars(10, "gross").isEmpty());
+                    analyzer.searchMovies("Drama", 8.0f, 150);
+                }
+                return null;
+            }));
+        }
+        for (int round = 0; round < 3; round++) {
+            for (Path batch : batches) {
+                analyzer.appendCsv(batch.toString());
+            }
+            assertEquals(full.getMovieCountByYear(), analyzer.getMovieCountByYear());
+            assertEquals(full.getCoStarCount(), analyzer.getCoStarCount());
+            assertEquals(full.getTopStars(30, "rating"), analyzer.getTopStars(30, "rating"));
+            assertEquals(full.searchMovies("Drama", 8.0f, 150), analyzer.searchMovies("Drama", 8.0f, 150));
+            analyzer.reload();
+            assertEquals(100, sum(analyzer.getMovieCountByYear()));
+        }
+        writing.set(false);
+        for (Future<?> result : results) {
+            result.get();
+        }
+        readers.shutdown();
+        analyzer.close();
+        assertTrue(seen.contains(100));
+    }
+
+    @Test
+    void concurrentWritersEachAddTheirMoviesOnce() throws Exception {
+        MovieAnalyzer.Movie template = new MovieAnalyzer(CSV.toString()).getMovies().get(0);
+        int writers = 4;
+        int appends = 50;
+        for (int round = 0; round < 5; round++) {
+            MovieAnalyzer analyzer = new MovieAnalyzer(CSV.toString());
+            // Built before the writers start, so every append also extends the totals.
+            analyzer.getMovieCountByGenre();
+            CountDownLatch start = new CountDownLatch(1);
+            ExecutorService pool = Executors.newFixedThreadPool(writers);
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < writers; t++) {
+                int writer = t;
+                results.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < appends; i++) {
+                        // A genre list no other writer uses, interned into the shared dictionary.
+                        String genre = "Drama, Genre" + writer + "x" + i;
+                        analyzer.append(movie(template, "W" + writer + "-" + i + "a", genre),
+                                movie(template, "W" + writer + "-" + i + "b", genre));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get();
+            }
+            pool.shutdown();
+            assertEquals(500 + writers * appends * 2, analyzer.getMovies().size());
+            Map<String, Integer> genres = analyzer.getMovieCountByGenre();
+            for (int t = 0; t < writers; t++) {
+                for (int i = 0; i < appends; i++) {
+                    assertEquals(2, genres.get("Genre" + t + "x" + i));
+                }
+            }
+            assertEquals(List.of("W2-7a", "W2-7b"), analyzer.searchMovies("Genre2x7", 0f, 1000));
+        }
+    }
+
+    private static MovieAnalyzer.Movie movie(MovieAnalyzer.Movie template, String title, String genre) {
+        MovieAnalyzer.Movie m = template;
+        return new MovieAnalyzer.Movie(m.getLink(), title, m.getYear(), m.getCertificate(), m.getRuntime(),
+                genre, m.getRating(), m.getOverview(), m.getScore(), m.getDirector(), m.getStar1(),
+                m.getStar2(), m.getStar3(), m.getStar4(), m.getVotes(), m.getGross());
+    }
+}
@@ -0,0 +1,46 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CsvTokenizerTest {
+
+    private static CsvTokenizer tokenize(String csv) {
+        return new CsvTokenizer(new StringReader(csv));
+    }
+
+    @Test
+    void decodesQuotedFieldsAndEscapes() throws IOException {
+        CsvTokenizer csv = tokenize("\"a,b\",plain,\"say \"\"hi\"\"\",\r\nnext\n");
+        assertTrue(csv.next());
+        assertEquals(4, csv.fieldCount());
+        assertEquals("a,b", csv.text(0));
+        assertEquals("plain", csv.text(1));
+        assertEquals("say \"hi\"", csv.text(2));
+        assertEquals("", csv.text(3));
+        assertTrue(csv.next());
+        assertEquals(1, csv.fieldCount());
+        assertEquals("next", csv.text(0));
+        assertFalse(csv.next());
+    }
+
+    @Test
+    void parsesNumbersFromTheRecordBuffer() throws IOException {
+        CsvTokenizer csv = tokenize("142 min,\"28,341,469\",8.6,9.3,,1e1\n");
+        assertTrue(csv.next());
+        assertEquals(142, csv.parseInt(0));
+        assertEquals(28341469L, csv.parseLong(1));
+        assertEquals(8.6f, csv.parseFloat(2));
+        assertEquals(9.3f, csv.parseFloat(3));
+        assertEquals(0, csv.parseInt(4));
+        assertEquals(10f, csv.parseFloat(5));
+    }
+
+    @Test
+    void rejectsUnterminatedQuotes() {
+        CsvTokenizer csv = tokenize("\"open,field\n");
+        assertThrows(IOException.class, csv::next);
+    }
+}
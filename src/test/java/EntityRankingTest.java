@@ -0,0 +1,185 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EntityRankingTest {
+    private static final Path CSV = Paths.get("resources", "imdb_top_500.csv");
+
+    private static List<String> namesOf(MovieAnalyzer.Movie movie, MovieAnalyzer.Entity entity) {
+        switch (entity) {
+            case STAR:
+                return Arrays.asList(movie.getStar1(), movie.getStar2(), movie.getStar3(), movie.getStar4());
+            case DIRECTOR:
+                return Arrays.asList(movie.getDirector());
+            case GENRE:
+                return Arrays.asList(movie.getGenre().replace("\"", "").split(", "));
+            default:
+                return Arrays.asList(movie.getCertificate());
+        }
+    }
+
+    /** Value of one movie for a metric, or null when the metric leaves the movie out. */
+    private static Double valueOf(MovieAnalyzer.Movie movie, MovieAnalyzer.Metric metric) {
+        switch (metric) {
+            case RATING:
+                return (double) movie.getRating();
+            case GROSS:
+                return movie.getGross() == 0 ? null : (double) movie.getGross();
+            case VOTES:
+                return (double) movie.getVotes();
+            case SCORE:
+                return movie.getScore() == 0 ? null : (double) movie.getScore();
+            default:
+                return 1.0;
+        }
+    }
+
+    /** Ranks entities from the materialised movies, one at a time. */
+    private static List<String> bruteForce(
+            MovieDataset d, MovieAnalyzer.Entity entity, MovieAnalyzer.Metric metric, int k) {
+        // Per name: sum and number of counted movies.
+        Map<String, double[]> sums = new HashMap<>();
+        for (int r = 0; r < d.size; r++) {
+            MovieAnalyzer.Movie movie = d.movie(r);
+            Double value = valueOf(movie, metric);
+            for (String name : namesOf(movie, entity)) {
+                double[] s = sums.computeIfAbsent(name, n -> new double[2]);
+                if (value != null) {
+                    s[0] += value;
+                    s[1]++;
+                }
+            }
+        }
+        Map<String, Double> values = new HashMap<>();
+        sums.forEach((name, s) -> {
+            double mean = s[1] == 0 ? 0 : s[0] / s[1];
+            if (metric == MovieAnalyzer.Metric.MOVIES) {
+                mean = s[1];
+            } else if (metric != MovieAnalyzer.Metric.RATING) {
+                mean = Math.floor(mean);
+            }
+            values.put(name, mean);
+        });
+        return values.entrySet().stream()
+                .sorted(Comparator.comparing((Map.Entry<String, Double> e) -> -e.getValue())
+                        .thenComparing(Map.Entry::getKey))
+                .limit(k)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    void ranksEveryEntityAndMetricLikeABruteForcePass() throws IOException {
+        MovieDataset d = MappedCsvLoader.load(CSV, false);
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            for (MovieAnalyzer.Entity entity : MovieAnalyzer.Entity.values()) {
+                for (MovieAnalyzer.Metric metric : MovieAnalyzer.Metric.values()) {
+                    List<String> expected = bruteForce(d, entity, metric, 40);
+                    assertEquals(expected, EntityStats.build(d, entity, null).ranking(metric).top(40),
+                            entity + " by " + metric);
+                    assertEquals(expected, EntityStats.build(d, entity, pool).ranking(metric).top(40),
+                            entity + " by " + metric + " in parallel");
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void keepsOneRankingPerDataSetVersion() throws IOException {
+        MovieDataset d = MappedCsvLoader.load(CSV, false);
+        RunningTotals totals = d.totals(null);
+        assertFalse(totals.hasStats(MovieAnalyzer.Entity.STAR));
+        EntityStats stats = totals.stats(MovieAnalyzer.Entity.STAR, null);
+        assertSame(stats, totals.stats(MovieAnalyzer.Entity.STAR, null));
+        EntityRanking ranking = stats.ranking(MovieAnalyzer.Metric.RATING);
+        assertSame(ranking, stats.ranking(MovieAnalyzer.Metric.RATING));
+        assertEquals(ranking.ranking().length, ranking.top(Integer.MAX_VALUE).size());
+        assertTrue(ranking.top(0).isEmpty());
+    }
+
+    @Test
+    void appendsExtendTheSumsOfEachVersion() throws IOException {
+        MovieDataset d = MappedCsvLoader.load(CSV, false);
+        RunningTotals totals = d.totals(null);
+        EntityStats before = totals.stats(MovieAnalyzer.Entity.STAR, null);
+        List<String> top = before.ranking(MovieAnalyzer.Metric.MOVIES).top(20);
+
+        MovieDataset doubled = d.append(d);
+        RunningTotals appended = totals.append(doubled);
+        // Only kinds ranked before the append are carried over.
+        assertTrue(appended.hasStats(MovieAnalyzer.Entity.STAR));
+        assertFalse(appended.hasStats(MovieAnalyzer.Entity.GENRE));
+        EntityStats after = appended.stats(MovieAnalyzer.Entity.STAR, null);
+        assertNotSame(before, after);
+        EntityStats rebuilt = EntityStats.build(doubled, MovieAnalyzer.Entity.STAR, null);
+        assertArrayEquals(rebuilt.rows, after.rows);
+        assertArrayEquals(rebuilt.ratingSum, after.ratingSum);
+        assertArrayEquals(rebuilt.grossSum, after.grossSum);
+        assertArrayEquals(rebuilt.grossed, after.grossed);
+        assertArrayEquals(rebuilt.votesSum, after.votesSum);
+        assertArrayEquals(rebuilt.scoreSum, after.scoreSum);
+        assertArrayEquals(rebuilt.scored, after.scored);
+
+        assertEquals(top, after.ranking(MovieAnalyzer.Metric.MOVIES).top(20));
+        int star = after.ranking(MovieAnalyzer.Metric.MOVIES).ranking()[0];
+        assertEquals(2 * before.rows[star], after.rows[star]);
+        assertEquals(before.value(star, MovieAnalyzer.Metric.RATING), after.value(star, MovieAnalyzer.Metric.RATING), 1e-9);
+        // The earlier version's sums are unchanged.
+        assertEquals(top, before.ranking(MovieAnalyzer.Metric.MOVIES).top(20));
+        assertEquals(rebuilt.rows[star] / 2, before.rows[star]);
+    }
+
+    @Test
+    void topStarsIsTheStarRanking() {
+        MovieAnalyzer analyzer = new MovieAnalyzer(CSV.toString());
+        for (MovieAnalyzer.Metric metric : MovieAnalyzer.Metric.values()) {
+            String by = metric.name().toLowerCase();
+            assertEquals(analyzer.getTopEntities(MovieAnalyzer.Entity.STAR, metric, 25),
+                    analyzer.getTopStars(25, by));
+        }
+        assertTrue(analyzer.getTopStars(25, "budget").isEmpty());
+        // Genres by number of movies rank as the genre counts are ordered.
+        List<String> genres = analyzer.getMovieCountByGenre().keySet().stream().limit(5).collect(Collectors.toList());
+        assertEquals(genres, analyzer.getTopEntities(MovieAnalyzer.Entity.GENRE, MovieAnalyzer.Metric.MOVIES, 5));
+    }
+
+    @Test
+    void mappedNamesCompareLikeStrings(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("movies.snapshot");
+        MovieSnapshot.save(MappedCsvLoader.load(CSV, false), file, CSV);
+        StringDictionary people = MovieSnapshot.open(file, CSV, false, true).people;
+        // A supplementary character sorts before U+E000 to U+FFFF in UTF-16, unlike in UTF-8.
+        for (String name : new String[]{"\uD835\uDC9C", "\uFB01lm", "\u00C9mile", "Zo\u00EB"}) {
+            people.intern(name);
+            people.intern("A" + name);
+        }
+        int[] ids = new int[200];
+        for (int i = 0; i < 150; i++) {
+            ids[i] = i;
+        }
+        for (int i = 150; i < ids.length; i++) {
+            ids[i] = people.size() - (ids.length - i);
+        }
+        for (int a : ids) {
+            for (int b : ids) {
+                assertEquals(Integer.signum(people.get(a).compareTo(people.get(b))),
+                        Integer.signum(people.compare(a, b)), people.get(a) + " / " + people.get(b));
+            }
+        }
+    }
+}
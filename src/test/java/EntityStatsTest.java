@@ -0,0 +1,74 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EntityStatsTest {
+    private static final Path CSV = Paths.get("resources", "imdb_top_500.csv");
+
+    /** Sums per star from the materialised movies: movies, rating, gross, grossed, votes, score, scored. */
+    private static Map<String, double[]> sumsByStar(MovieDataset d) {
+        Map<String, double[]> sums = new HashMap<>();
+        for (int r = 0; r < d.size; r++) {
+            MovieAnalyzer.Movie movie = d.movie(r);
+            for (String star : new String[]{movie.getStar1(), movie.getStar2(), movie.getStar3(), movie.getStar4()}) {
+                double[] s = sums.computeIfAbsent(star, k -> new double[7]);
+                s[0]++;
+                s[1] += movie.getRating();
+                if (movie.getGross() != 0) {
+                    s[2] += movie.getGross();
+                    s[3]++;
+                }
+                s[4] += movie.getVotes();
+                if (movie.getScore() != 0) {
+                    s[5] += movie.getScore();
+                    s[6]++;
+                }
+            }
+        }
+        return sums;
+    }
+
+    @Test
+    void sumsEveryMetricPerStar() throws IOException {
+        MovieDataset d = MappedCsvLoader.load(CSV, false);
+        EntityStats stats = EntityStats.build(d, MovieAnalyzer.Entity.STAR, null);
+        Map<String, double[]> sums = sumsByStar(d);
+        sums.forEach((star, s) -> {
+            int id = d.people.find(star);
+            assertEquals((int) s[0], stats.rows[id], star);
+            assertEquals(s[1], stats.ratingSum[id], 1e-6, star);
+            assertEquals((long) s[2], stats.grossSum[id], star);
+            assertEquals((int) s[3], stats.grossed[id], star);
+            assertEquals((long) s[4], stats.votesSum[id], star);
+            assertEquals((long) s[5], stats.scoreSum[id], star);
+            assertEquals((int) s[6], stats.scored[id], star);
+        });
+        // Ids that only appear as directors name no star row and are not ranked.
+        assertEquals(sums.size(), stats.ranking(MovieAnalyzer.Metric.MOVIES).ranking().length);
+        assertSame(stats.ranking(MovieAnalyzer.Metric.RATING), stats.ranking(MovieAnalyzer.Metric.RATING));
+    }
+
+    @Test
+    void appendedVersionsGetTheirOwnTable() throws IOException {
+        MovieDataset d = MappedCsvLoader.load(CSV, false);
+        EntityStats before = d.totals(null).stats(MovieAnalyzer.Entity.STAR, null);
+        List<String> top = before.ranking(MovieAnalyzer.Metric.MOVIES).top(20);
+
+        MovieDataset doubled = d.append(d);
+        EntityStats after = d.totals(null).append(doubled).stats(MovieAnalyzer.Entity.STAR, null);
+        assertNotSame(before, after);
+        assertEquals(top, after.ranking(MovieAnalyzer.Metric.MOVIES).top(20));
+        int star = after.ranking(MovieAnalyzer.Metric.MOVIES).ranking()[0];
+        assertEquals(2 * before.rows[star], after.rows[star]);
+        assertEquals(before.value(star, MovieAnalyzer.Metric.RATING),
+                after.value(star, MovieAnalyzer.Metric.RATING), 1e-9);
+        assertEquals(top, before.ranking(MovieAnalyzer.Metric.MOVIES).top(20));
+    }
+}
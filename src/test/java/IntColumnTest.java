@@ -0,0 +1,66 @@
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IntColumnTest {
+
+    /** A read-only column of the values 0 to {@code rows - 1}, like one mapped from a snapshot. */
+    private static IntColumn mapped(int rows) {
+        IntBuffer values = ByteBuffer.allocate(4 * rows).asIntBuffer();
+        for (int r = 0; r < rows; r++) {
+            values.put(r, r);
+        }
+        return new IntColumn(values.asReadOnlyBuffer());
+    }
+
+    @Test
+    void appendsToAMappedColumnGoToItsTail() {
+        IntColumn column = mapped(100);
+        int size = 100;
+        for (int round = 0; round < 50; round++) {
+            column = column.grow(size, size + 100, true);
+            for (int r = size; r < size + 100; r++) {
+                column.set(r, r);
+            }
+            size += 100;
+        }
+        assertEquals(5100, size);
+        int[] rows = column.toArray(size);
+        for (int r = 0; r < size; r++) {
+            assertEquals(r, column.get(r));
+            assertEquals(r, rows[r]);
+        }
+        int[] block = new int[200];
+        column.get(50, block, 200);
+        assertEquals(50, block[0]);
+        assertEquals(249, block[199]);
+    }
+
+    @Test
+    void aSecondExtensionCopiesTheTailItShares() {
+        IntColumn base = mapped(10).grow(10, 12, true);
+        base.set(10, 10);
+        base.set(11, 11);
+        IntColumn first = base.grow(12, 13, true);
+        first.set(12, 100);
+        IntColumn second = base.grow(12, 13, false);
+        second.set(12, 200);
+        assertSame(base, first);
+        assertEquals(100, first.get(12));
+        assertEquals(11, second.get(11));
+        assertEquals(200, second.get(12));
+    }
+
+    @Test
+    void heapColumnsGrowInPlaceOnlyWithRoom() {
+        IntColumn column = new IntColumn(new int[]{1, 2, 3, 0});
+        assertSame(column, column.grow(3, 4, true));
+        IntColumn grown = column.grow(3, 5, true);
+        assertNotSame(column, grown);
+        assertTrue(grown.capacity() >= 6);
+        assertArrayEquals(new int[]{1, 2, 3}, grown.toArray(3));
+    }
+}
@@ -0,0 +1,71 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LongIntHashMapTest {
+
+    @Test
+    void matchesHashMapAcrossResizes() {
+        LongIntHashMap map = new LongIntHashMap();
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextInt(20_000) - 10_000L;
+            int delta = random.nextInt(5) + 1;
+            assertEquals(expected.merge(key, delta, Integer::sum), map.addTo(key, delta));
+        }
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+            assertTrue(map.containsKey(entry.getKey()));
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+        Map<Long, Integer> iterated = new HashMap<>();
+        LongIntHashMap.Cursor cursor = map.cursor();
+        while (cursor.advance()) {
+            assertNull(iterated.put(cursor.key(), cursor.value()));
+        }
+        assertEquals(expected, iterated);
+    }
+
+    @Test
+    void iterationOrderDoesNotDependOnInsertionOrder() {
+        List<Long> keys = new ArrayList<>();
+        for (long key = 0; key < 5_000; key++) {
+            keys.add(key * 31);
+        }
+        LongIntHashMap inOrder = new LongIntHashMap();
+        keys.forEach(key -> inOrder.addTo(key, 1));
+        Collections.shuffle(keys, new Random(11));
+        LongIntHashMap firstHalf = new LongIntHashMap();
+        LongIntHashMap secondHalf = new LongIntHashMap();
+        for (int i = 0; i < keys.size(); i++) {
+            (i < keys.size() / 2 ? firstHalf : secondHalf).addTo(keys.get(i), 1);
+        }
+        firstHalf.addAll(secondHalf);
+        LongIntHashMap.Cursor expected = inOrder.cursor();
+        LongIntHashMap.Cursor actual = firstHalf.cursor();
+        while (expected.advance()) {
+            assertTrue(actual.advance());
+            assertEquals(expected.key(), actual.key());
+        }
+        assertFalse(actual.advance());
+    }
+
+    @Test
+    void absentKeysReadAsZero() {
+        LongIntHashMap map = new LongIntHashMap();
+        assertFalse(map.containsKey(0));
+        assertEquals(0, map.get(42));
+        map.addTo(0, 3);
+        assertTrue(map.containsKey(0));
+        assertEquals(3, map.get(0));
+        assertEquals(1, map.size());
+    }
+}
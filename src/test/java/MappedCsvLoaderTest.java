@@ -0,0 +1,117 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedCsvLoaderTest {
+    private static final Path CSV = Paths.get("resources", "imdb_top_500.csv");
+
+    private static MovieDataset readerBased() throws IOException {
+        try (Reader reader = Files.newBufferedReader(CSV, StandardCharsets.UTF_8)) {
+            return MovieAnalyzer.read(reader);
+        }
+    }
+
+    @Test
+    void matchesTheReaderAcrossWindowBoundaries() throws IOException {
+        MovieDataset expected = readerBased();
+        // Small windows force records, quoted fields and escapes to straddle window edges.
+        for (int window : new int[]{MappedCsvLoader.WINDOW, 4096, 997}) {
+            MovieDataset actual = MappedCsvLoader.load(CSV, true, null, window);
+            assertEquals(expected.size, actual.size);
+            for (int r = 0; r < expected.size; r++) {
+                MovieAnalyzer.Movie e = expected.movie(r);
+                MovieAnalyzer.Movie a = actual.movie(r);
+                assertEquals(e.getLink(), a.getLink());
+                assertEquals(e.getTitle(), a.getTitle());
+                assertEquals(e.getYear(), a.getYear());
+                assertEquals(e.getCertificate(), a.getCertificate());
+                assertEquals(e.getRuntime(), a.getRuntime());
+                assertEquals(e.getGenre(), a.getGenre());
+                assertEquals(e.getRating(), a.getRating());
+                assertEquals(e.getOverview(), a.getOverview());
+                assertEquals(expected.overviewLength.get(r), actual.overviewLength.get(r));
+                assertEquals(e.getScore(), a.getScore());
+                assertEquals(e.getDirector(), a.getDirector());
+                assertEquals(e.getStar4(), a.getStar4());
+                assertEquals(e.getVotes(), a.getVotes());
+                assertEquals(e.getGross(), a.getGross());
+            }
+        }
+    }
+
+    @Test
+    void skipsTextButKeepsOverviewLengths() throws IOException {
+        MovieDataset expected = readerBased();
+        MovieDataset actual = MappedCsvLoader.load(CSV, false);
+        assertNull(actual.link);
+        assertNull(actual.overview);
+        assertArrayEquals(expected.overviewLength.toArray(expected.size), actual.overviewLength.toArray(actual.size));
+        assertEquals(expected.people.size(), actual.people.size());
+    }
+
+    @Test
+    void parallelChunksMatchASequentialLoad(@TempDir Path dir) throws IOException {
+        // Twenty copies, so every worker gets several chunks' worth of quoted overviews.
+        List<String> lines = Files.readAllLines(CSV, StandardCharsets.UTF_8);
+        StringBuilder csv = new StringBuilder(lines.get(0)).append('\n');
+        for (int copy = 0; copy < 20; copy++) {
+            for (String line : lines.subList(1, lines.size())) {
+                csv.append(line).append('\n');
+            }
+        }
+        Path file = Files.write(dir.resolve("copies.csv"), csv.toString().getBytes(StandardCharsets.UTF_8));
+        MovieDataset expected = MappedCsvLoader.load(file, true);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int window : new int[]{MappedCsvLoader.WINDOW, 1 << 20}) {
+                MovieDataset actual = MappedCsvLoader.load(file, true, pool, window);
+                assertArrayEquals(expected.title.toArray(expected.size), actual.title.toArray(actual.size));
+                assertArrayEquals(strings(expected.link), strings(actual.link));
+                assertArrayEquals(strings(expected.overview), strings(actual.overview));
+                assertArrayEquals(expected.overviewLength.toArray(expected.size), actual.overviewLength.toArray(actual.size));
+                assertArrayEquals(expected.year.toArray(expected.size), actual.year.toArray(actual.size));
+                assertArrayEquals(expected.runtime.toArray(expected.size), actual.runtime.toArray(actual.size));
+                assertArrayEquals(expected.rating.toArray(expected.size), actual.rating.toArray(actual.size));
+                assertArrayEquals(expected.gross.toArray(expected.size), actual.gross.toArray(actual.size));
+                // Ids are assigned in order of first appearance, as in one sequential pass.
+                assertArrayEquals(expected.certificate.toArray(expected.size), actual.certificate.toArray(actual.size));
+                assertArrayEquals(expected.genreList.toArray(expected.size), actual.genreList.toArray(actual.size));
+                assertArrayEquals(expected.director.toArray(expected.size), actual.director.toArray(actual.size));
+                for (int k = 0; k < MovieDataset.STARS; k++) {
+                    assertArrayEquals(expected.stars[k].toArray(expected.size), actual.stars[k].toArray(actual.size));
+                }
+                for (int id = 0; id < expected.people.size(); id++) {
+                    assertEquals(expected.people.get(id), actual.people.get(id));
+                }
+                for (int id = 0; id < expected.genres.size(); id++) {
+                    assertEquals(expected.genres.get(id), actual.genres.get(id));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void rejectsRecordsLargerThanAWindow() {
+        assertThrows(IOException.class, () -> MappedCsvLoader.load(CSV, false, null, 64));
+    }
+
+    private static String[] strings(TextColumn column) {
+        String[] values = new String[column.size()];
+        for (int r = 0; r < values.length; r++) {
+            values[r] = column.get(r);
+        }
+        return values;
+    }
+}
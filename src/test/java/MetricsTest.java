@@ -0,0 +1,104 @@
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsTest {
+    private static final Path CSV = Paths.get("resources", "imdb_top_500.csv");
+
+    @Test
+    void histogramPercentilesStayWithinThreePercent() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long v = 1; v <= 100_000; v++) {
+            histogram.record(v * 1000);
+        }
+        assertEquals(100_000, histogram.count());
+        assertEquals(100_000_000, histogram.max());
+        for (double percent : new double[]{50, 90, 99, 99.9}) {
+            double exact = percent * 1_000_000;
+            assertEquals(exact, histogram.percentile(percent), exact * 0.03, "p" + percent);
+        }
+        assertEquals(100_000_000, histogram.percentile(100));
+        for (long v : new long[]{0, 31, 32, 1000, 123_456_789, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.index(v);
+            assertTrue(LatencyHistogram.highestInBucket(index) >= v);
+            assertTrue(index == 0 || LatencyHistogram.highestInBucket(index - 1) < v);
+        }
+    }
+
+    @Test
+    void recordsEveryQueryAndLoad() throws Exception {
+        MovieAnalyzer analyzer = MovieAnalyzer.builder(CSV.toString()).metrics(true).build();
+        analyzer.getTopMovies(10, "runtime");
+        analyzer.getTopMovies(10, "overview");
+        analyzer.getMovieCountByGenre();
+        analyzer.searchMovies("Drama", 8.0f, 150);
+
+        MovieAnalyzer.Metrics metrics = analyzer.getMetrics();
+        assertEquals(1, metrics.getLoads().getCount());
+        assertEquals(500, metrics.getRowsLoaded());
+        assertEquals(Files.size(CSV), metrics.getBytesRead());
+        // Two full scans for the top movies, one for the totals and one for the search index.
+        assertEquals(2000, metrics.getRowsScanned());
+        Map<String, MovieAnalyzer.QueryStats> queries = metrics.getQueries();
+        assertEquals(3, queries.size());
+        MovieAnalyzer.QueryStats top = queries.get("getTopMovies");
+        assertEquals(2, top.getCount());
+        assertTrue(top.getMaxNanos() > 0);
+        assertTrue(top.getP50Nanos() <= top.getP99Nanos());
+        assertTrue(top.getP99Nanos() <= top.getMaxNanos());
+        assertTrue(top.getAllocatedBytes() > 0);
+        assertThrows(UnsupportedOperationException.class, () -> queries.clear());
+
+        analyzer.getMovieCountByGenre();
+        assertEquals(1, metrics.getQueries().get("getMovieCountByGenre").getCount());
+        assertEquals(2, analyzer.getMetrics().getQueries().get("getMovieCountByGenre").getCount());
+        assertEquals(2000, analyzer.getMetrics().getRowsScanned());
+    }
+
+    @Test
+    void rankingsAfterAnAppendOnlyScanTheNewRows() {
+        MovieAnalyzer analyzer = MovieAnalyzer.builder(CSV.toString()).metrics(true).build();
+        analyzer.getTopStars(10, "gross");
+        // One scan for the totals and one for the star sums.
+        assertEquals(1000, analyzer.getMetrics().getRowsScanned());
+        analyzer.append(analyzer.getMovies().get(0));
+        assertEquals(1001, analyzer.getMetrics().getRowsScanned());
+        analyzer.getMovieCountByYear();
+        analyzer.getTopStars(10, "rating");
+        analyzer.getTopStars(10, "gross");
+        assertEquals(1001, analyzer.getMetrics().getRowsScanned());
+    }
+
+    @Test
+    void exposesMetricsThroughJmx() throws Exception {
+        MovieAnalyzer analyzer = MovieAnalyzer.builder(CSV.toString()).metrics(true).build();
+        analyzer.getCoStarCount();
+        ObjectName name = analyzer.registerMBean("metrics-test");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            assertEquals(500, server.getAttribute(name, "MovieCount"));
+            assertEquals(500L, server.getAttribute(name, "RowsLoaded"));
+            CompositeData loads = (CompositeData) server.getAttribute(name, "Loads");
+            assertEquals(1L, loads.get("count"));
+            assertNotNull(server.getAttribute(name, "Queries"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+
+    @Test
+    void disabledByDefault() {
+        MovieAnalyzer analyzer = new MovieAnalyzer(CSV.toString());
+        assertThrows(IllegalStateException.class, analyzer::getMetrics);
+        assertThrows(IllegalStateException.class, () -> analyzer.registerMBean("disabled"));
+    }
+}
@@ -0,0 +1,182 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MovieSnapshotTest {
+    private static final Path CSV = Paths.get("resources", "imdb_top_500.csv");
+
+    @Test
+    void roundTripsEveryColumn(@TempDir Path dir) throws IOException {
+        MovieDataset expected = MappedCsvLoader.load(CSV, true);
+        Path file = dir.resolve("movies.snapshot");
+        MovieSnapshot.save(expected, file, CSV);
+        MovieDataset actual = MovieSnapshot.open(file, CSV, true);
+        assertNotNull(actual);
+        assertSameRows(expected, actual);
+    }
+
+    @Test
+    void convertsTheCsvAWindowAtATime(@TempDir Path dir) throws IOException {
+        MovieDataset expected = MappedCsvLoader.load(CSV, true);
+        Path file = dir.resolve("movies.snapshot");
+        MovieSnapshot.convert(CSV, file, true, null, 1 << 14);
+        try (Stream<Path> files = Files.list(dir)) {
+            // The spilled columns are gone once the snapshot is written.
+            assertEquals(List.of(file), files.collect(Collectors.toList()));
+        }
+        assertSameRows(expected, MovieSnapshot.open(file, CSV, true));
+        MovieDataset mapped = MovieSnapshot.open(file, CSV, true, true);
+        assertNotNull(mapped.title.text());
+        assertSameRows(expected, mapped);
+    }
+
+    private static void assertSameRows(MovieDataset expected, MovieDataset actual) {
+        assertEquals(expected.size, actual.size);
+        assertArrayEquals(strings(expected.link), strings(actual.link));
+        assertArrayEquals(expected.title.toArray(expected.size), actual.title.toArray(actual.size));
+        assertArrayEquals(strings(expected.overview), strings(actual.overview));
+        assertArrayEquals(expected.overviewLength.toArray(expected.size), actual.overviewLength.toArray(actual.size));
+        assertArrayEquals(expected.year.toArray(expected.size), actual.year.toArray(actual.size));
+        assertArrayEquals(expected.certificate.toArray(expected.size), actual.certificate.toArray(actual.size));
+        assertArrayEquals(expected.runtime.toArray(expected.size), actual.runtime.toArray(actual.size));
+        assertArrayEquals(expected.genreList.toArray(expected.size), actual.genreList.toArray(actual.size));
+        assertArrayEquals(expected.rating.toArray(expected.size), actual.rating.toArray(actual.size));
+        assertArrayEquals(expected.score.toArray(expected.size), actual.score.toArray(actual.size));
+        assertArrayEquals(expected.director.toArray(expected.size), actual.director.toArray(actual.size));
+        for (int k = 0; k < MovieDataset.STARS; k++) {
+            assertArrayEquals(expected.stars[k].toArray(expected.size), actual.stars[k].toArray(actual.size));
+        }
+        assertArrayEquals(expected.votes.toArray(expected.size), actual.votes.toArray(actual.size));
+        assertArrayEquals(expected.gross.toArray(expected.size), actual.gross.toArray(actual.size));
+        assertArrayEquals(expected.genreStart, actual.genreStart);
+        assertArrayEquals(expected.genreIds, actual.genreIds);
+        assertEquals(expected.people.size(), actual.people.size());
+        assertEquals(expected.people.get(42), actual.people.get(42));
+        assertEquals(expected.genres.find("Drama"), actual.genres.find("Drama"));
+        assertEquals(expected.certificates.find("PG-13"), actual.certificates.find("PG-13"));
+    }
+
+    @Test
+    void staleOrCorruptSnapshotsAreNotOpened(@TempDir Path dir) throws IOException {
+        Path source = Files.copy(CSV, dir.resolve("movies.csv"));
+        Path file = dir.resolve("movies.snapshot");
+        MovieSnapshot.save(MappedCsvLoader.load(source, false), file, source);
+        assertNotNull(MovieSnapshot.open(file, source, false));
+        // Built without text, so it cannot serve an analyzer that keeps it.
+        assertNull(MovieSnapshot.open(file, source, true));
+
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 1;
+        Path corrupt = Files.write(dir.resolve("corrupt.snapshot"), bytes);
+        assertNull(MovieSnapshot.open(corrupt, source, false));
+
+        Files.setLastModifiedTime(source, FileTime.fromMillis(0));
+        assertNull(MovieSnapshot.open(file, source, false));
+        assertNull(MovieSnapshot.open(dir.resolve("missing.snapshot"), source, false));
+    }
+
+    @Test
+    void analyzerRebuildsAndReusesItsSnapshot(@TempDir Path dir) throws IOException {
+        Path source = Files.copy(CSV, dir.resolve("movies.csv"));
+        Path file = dir.resolve("movies.snapshot");
+        MovieAnalyzer parsed = new MovieAnalyzer(source.toString());
+        MovieAnalyzer first = MovieAnalyzer.builder(source.toString()).snapshot(file.toString()).build();
+        assertTrue(Files.exists(file));
+        // A current snapshot is opened rather than rewritten.
+        FileTime written = Files.getLastModifiedTime(file);
+        MovieAnalyzer second = MovieAnalyzer.builder(source.toString()).snapshot(file.toString()).build();
+        assertEquals(written, Files.getLastModifiedTime(file));
+        for (MovieAnalyzer analyzer : new MovieAnalyzer[]{first, second, MovieAnalyzer.openSnapshot(file.toString())}) {
+            assertEquals(parsed.getMovieCountByGenre(), analyzer.getMovieCountByGenre());
+            assertEquals(parsed.getCoStarCount(), analyzer.getCoStarCount());
+            assertEquals(parsed.getTopMovies(20, "overview"), analyzer.getTopMovies(20, "overview"));
+            assertEquals(parsed.getTopStars(20, "gross"), analyzer.getTopStars(20, "gross"));
+        }
+
+        // Once the source changes, the snapshot is rebuilt from it.
+        Files.write(source, Files.readAllLines(CSV).subList(0, 101));
+        MovieAnalyzer rebuilt = MovieAnalyzer.builder(source.toString()).snapshot(file.toString()).build();
+        assertEquals(100, rebuilt.getMovies().size());
+        assertEquals(100, MovieAnalyzer.openSnapshot(file.toString()).getMovies().size());
+    }
+
+    @Test
+    void offHeapColumnsAnswerLikeHeapOnes(@TempDir Path dir) throws IOException {
+        Path source = Files.copy(CSV, dir.resolve("movies.csv"));
+        Path file = dir.resolve("movies.snapshot");
+        MovieAnalyzer heap = new MovieAnalyzer(source.toString());
+        MovieAnalyzer temporary = MovieAnalyzer.builder(source.toString()).offHeap(true).build();
+        MovieAnalyzer snapshot =
+                MovieAnalyzer.builder(source.toString()).snapshot(file.toString()).offHeap(true).build();
+        MovieDataset mapped = MovieSnapshot.open(file, source, false, true);
+        assertNotNull(mapped.title.text());
+        assertEquals(heap.getTopStars(5, "gross"), MovieAnalyzer.builder(mapped).build().getTopStars(5, "gross"));
+
+        // Enough appends that the rows after the mapped ones outgrow their first buffers.
+        MovieAnalyzer.Movie[] extra = heap.getMovies().subList(0, 50).toArray(new MovieAnalyzer.Movie[0]);
+        for (int round = 0; round < 30; round++) {
+            heap.append(extra);
+            temporary.append(extra);
+            snapshot.append(extra);
+        }
+        for (MovieAnalyzer analyzer : new MovieAnalyzer[]{temporary, snapshot}) {
+            assertEquals(heap.getMovieCountByYear(), analyzer.getMovieCountByYear());
+            assertEquals(heap.getMovieCountByGenre(), analyzer.getMovieCountByGenre());
+            assertEquals(heap.getCoStarCount(), analyzer.getCoStarCount());
+            for (String by : new String[]{"runtime", "overview"}) {
+                assertEquals(heap.getTopMovies(25, by), analyzer.getTopMovies(25, by), by);
+            }
+            assertEquals(heap.getTopStars(25, "rating"), analyzer.getTopStars(25, "rating"));
+            assertEquals(heap.getTopStars(25, "gross"), analyzer.getTopStars(25, "gross"));
+            assertEquals(heap.searchMovies("Drama", 8.0f, 150), analyzer.searchMovies("Drama", 8.0f, 150));
+            assertEquals(titles(heap), titles(analyzer));
+        }
+    }
+
+    @Test
+    void appendsLeaveTheMappedRowsAlone(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("movies.snapshot");
+        MovieSnapshot.save(MappedCsvLoader.load(CSV, true), file, CSV);
+        MovieDataset mapped = MovieSnapshot.open(file, CSV, true, true);
+        MovieDataset more = MappedCsvLoader.load(CSV, true);
+        MovieDataset first = mapped.append(more);
+        // The second extension of the same data set copies what the first wrote after its rows.
+        MovieDataset second = mapped.append(more).append(more);
+        assertEquals(500, mapped.size);
+        assertEquals(1000, first.size);
+        assertEquals(1500, second.size);
+        for (int r = 0; r < 1500; r++) {
+            int row = r % 500;
+            if (r < 1000) {
+                assertEquals(more.title.get(row), first.title.get(r));
+                assertEquals(more.overview.get(row), first.overview.get(r));
+            }
+            assertEquals(more.title.get(row), second.title.get(r));
+            assertEquals(more.link.get(row), second.link.get(r));
+            assertEquals(more.year.get(row), second.year.get(r));
+            assertEquals(more.gross.get(row), second.gross.get(r));
+        }
+    }
+
+    private static List<String> titles(MovieAnalyzer analyzer) {
+        return analyzer.getMovies().stream().map(MovieAnalyzer.Movie::getTitle).collect(Collectors.toList());
+    }
+
+    private static String[] strings(TextColumn column) {
+        String[] values = new String[column.size()];
+        for (int r = 0; r < values.length; r++) {
+            values[r] = column.get(r);
+        }
+        return values;
+    }
+}
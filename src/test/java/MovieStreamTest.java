@@ -0,0 +1,111 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MovieStreamTest {
+    private static final Path CSV = Paths.get("resources", "imdb_top_500.csv");
+
+    private static <T> T streamed(Function<Iterator<MovieAnalyzer.Movie>, T> query) throws IOException {
+        try (InputStream in = Files.newInputStream(CSV)) {
+            return query.apply(MovieStream.movies(in));
+        }
+    }
+
+    @Test
+    void answersLikeTheAnalyzer() throws IOException {
+        MovieAnalyzer analyzer = new MovieAnalyzer(CSV.toString());
+        assertEquals(analyzer.getMovieCountByYear(), streamed(MovieStream::getMovieCountByYear));
+        assertEquals(analyzer.getMovieCountByGenre(), streamed(MovieStream::getMovieCountByGenre));
+        // Orders matter, not just contents.
+        assertEquals(
+                String.valueOf(analyzer.getMovieCountByYear()),
+                String.valueOf(streamed(MovieStream::getMovieCountByYear)));
+        assertEquals(
+                String.valueOf(analyzer.getMovieCountByGenre()),
+                String.valueOf(streamed(MovieStream::getMovieCountByGenre)));
+        assertEquals(analyzer.getCoStarCount(), streamed(MovieStream::getCoStarCount));
+        for (int k : new int[]{0, 1, 10, 100, 1000}) {
+            for (String by : new String[]{"runtime", "overview"}) {
+                assertEquals(analyzer.getTopMovies(k, by), streamed(m -> MovieStream.getTopMovies(m, k, by)));
+            }
+            for (String by : new String[]{"rating", "gross", "votes", "score", "movies", "title"}) {
+                assertEquals(analyzer.getTopStars(k, by), streamed(m -> MovieStream.getTopStars(m, k, by)));
+            }
+        }
+        assertEquals(
+                analyzer.searchMovies("Drama", 8.0f, 150),
+                streamed(m -> MovieStream.searchMovies(m, "Drama", 8.0f, 150)));
+        assertEquals(
+                analyzer.searchMovies("Sci-Fi", 7.5f, 300),
+                streamed(m -> MovieStream.searchMovies(m, "Sci-Fi", 7.5f, 300)));
+    }
+
+    @Test
+    void acceptsAnyIterator() {
+        MovieAnalyzer analyzer = new MovieAnalyzer(CSV.toString());
+        assertEquals(
+                analyzer.getTopStars(20, "gross"),
+                MovieStream.getTopStars(analyzer.getMovies().iterator(), 20, "gross"));
+    }
+
+    @Test
+    void batchAnswersEveryQueryFromOnePass() throws IOException {
+        MovieAnalyzer analyzer = new MovieAnalyzer(CSV.toString());
+        MovieStream.Batch batch = MovieStream.batch();
+        Supplier<Map<Integer, Integer>> years = batch.movieCountByYear();
+        Supplier<Map<String, Integer>> genres = batch.movieCountByGenre();
+        Supplier<Map<List<String>, Integer>> coStars = batch.coStarCount();
+        Supplier<List<String>> longest = batch.topMovies(10, "runtime");
+        Supplier<List<String>> longer = batch.topMovies(50, "runtime");
+        Supplier<List<String>> wordiest = batch.topMovies(20, "overview");
+        Supplier<List<String>> byGross = batch.topStars(15, "gross");
+        Supplier<List<String>> byRating = batch.topStars(25, "rating");
+        Supplier<List<String>> byScore = batch.topStars(30, "score");
+        Supplier<List<String>> dramas = batch.searchMovies("Drama", 8.0f, 150);
+        Supplier<List<String>> westerns = batch.searchMovies("Western", 7.5f, 200);
+        assertThrows(IllegalStateException.class, years::get);
+
+        AtomicInteger read = new AtomicInteger();
+        try (InputStream in = Files.newInputStream(CSV)) {
+            Iterator<MovieAnalyzer.Movie> movies = MovieStream.movies(in);
+            batch.run(new Iterator<MovieAnalyzer.Movie>() {
+                @Override
+                public boolean hasNext() {
+                    return movies.hasNext();
+                }
+
+                @Override
+                public MovieAnalyzer.Movie next() {
+                    read.incrementAndGet();
+                    return movies.next();
+                }
+            });
+        }
+        assertEquals(500, read.get());
+        assertEquals(analyzer.getMovieCountByYear(), years.get());
+        assertEquals(String.valueOf(analyzer.getMovieCountByGenre()), String.valueOf(genres.get()));
+        assertEquals(analyzer.getCoStarCount(), coStars.get());
+        assertEquals(analyzer.getTopMovies(10, "runtime"), longest.get());
+        assertEquals(analyzer.getTopMovies(50, "runtime"), longer.get());
+        assertEquals(analyzer.getTopMovies(20, "overview"), wordiest.get());
+        assertEquals(analyzer.getTopStars(15, "gross"), byGross.get());
+        assertEquals(analyzer.getTopStars(25, "rating"), byRating.get());
+        assertEquals(analyzer.getTopStars(30, "score"), byScore.get());
+        assertEquals(analyzer.searchMovies("Drama", 8.0f, 150), dramas.get());
+        assertEquals(analyzer.searchMovies("Western", 7.5f, 200), westerns.get());
+        assertThrows(IllegalStateException.class, () -> batch.run(analyzer.getMovies().iterator()));
+        assertThrows(IllegalStateException.class, batch::movieCountByYear);
+    }
+}
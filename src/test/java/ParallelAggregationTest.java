@@ -0,0 +1,61 @@
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelAggregationTest {
+    private static MovieAnalyzer sequential;
+    private static MovieAnalyzer parallel;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        // Twenty copies of the local data set, so titles and star pairs repeat across partitions.
+        List<String> lines = Files.readAllLines(Paths.get("resources", "imdb_top_500.csv"), StandardCharsets.UTF_8);
+        StringBuilder csv = new StringBuilder(lines.get(0)).append('\n');
+        for (int copy = 0; copy < 20; copy++) {
+            for (String line : lines.subList(1, lines.size())) {
+                csv.append(line).append('\n');
+            }
+        }
+        MovieDataset data = MovieAnalyzer.read(new StringReader(csv.toString()));
+        sequential = MovieAnalyzer.builder(data).build();
+        parallel = MovieAnalyzer.builder(data).parallelism(7).build();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        sequential.close();
+        parallel.close();
+    }
+
+    @Test
+    void countsMatchIncludingOrder() {
+        assertEquals(new ArrayList<>(sequential.getMovieCountByYear().entrySet()),
+                new ArrayList<>(parallel.getMovieCountByYear().entrySet()));
+        assertEquals(new ArrayList<>(sequential.getMovieCountByGenre().entrySet()),
+                new ArrayList<>(parallel.getMovieCountByGenre().entrySet()));
+        assertEquals(new ArrayList<>(sequential.getCoStarCount().entrySet()),
+                new ArrayList<>(parallel.getCoStarCount().entrySet()));
+    }
+
+    @Test
+    void rankingsAndSearchesMatch() {
+        for (int k : new int[]{1, 20, 100}) {
+            assertEquals(sequential.getTopMovies(k, "runtime"), parallel.getTopMovies(k, "runtime"));
+            assertEquals(sequential.getTopMovies(k, "overview"), parallel.getTopMovies(k, "overview"));
+            assertEquals(sequential.getTopStars(k, "rating"), parallel.getTopStars(k, "rating"));
+            assertEquals(sequential.getTopStars(k, "gross"), parallel.getTopStars(k, "gross"));
+        }
+        assertEquals(sequential.searchMovies("Drama", 8.0f, 150), parallel.searchMovies("Drama", 8.0f, 150));
+        assertEquals(sequential.searchMovies("Sci-Fi", 8.2f, 200), parallel.searchMovies("Sci-Fi", 8.2f, 200));
+    }
+}
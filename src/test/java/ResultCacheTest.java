@@ -0,0 +1,63 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResultCacheTest {
+    private static final Path CSV = Paths.get("resources", "imdb_top_500.csv");
+
+    @Test
+    void evictsTheLeastRecentlyUsedEntry() {
+        ResultCache cache = new ResultCache(2);
+        List<Object> a = Arrays.asList("a");
+        List<Object> b = Arrays.asList("b");
+        List<Object> c = Arrays.asList("c");
+        assertEquals("A", cache.get(a, () -> "A"));
+        assertEquals("B", cache.get(b, () -> "B"));
+        assertEquals("A", cache.get(a, () -> "recomputed"));
+        assertEquals("C", cache.get(c, () -> "C"));
+        assertEquals(2, cache.size());
+        assertEquals("A", cache.get(a, () -> "recomputed"));
+        assertEquals("B2", cache.get(b, () -> "B2"));
+        assertEquals(2, cache.hits());
+        assertEquals(4, cache.misses());
+    }
+
+    @Test
+    void analyzerServesReadOnlyResultsUntilReload(@TempDir Path dir) throws IOException {
+        Path source = Files.copy(CSV, dir.resolve("movies.csv"));
+        MovieAnalyzer analyzer = MovieAnalyzer.builder(source.toString()).cacheSize(16).build();
+        Map<String, Integer> genres = analyzer.getMovieCountByGenre();
+        List<String> stars = analyzer.getTopStars(20, "gross");
+        assertSame(genres, analyzer.getMovieCountByGenre());
+        assertSame(stars, analyzer.getTopStars(20, "gross"));
+        assertNotSame(stars, analyzer.getTopStars(20, "rating"));
+        assertEquals(analyzer.searchMovies("Drama", 8.0f, 150), analyzer.searchMovies("Drama", 8.0f, 150));
+        assertEquals(3, analyzer.getCacheHits());
+        assertEquals(4, analyzer.getCacheMisses());
+        assertThrows(UnsupportedOperationException.class, () -> stars.add("Someone"));
+        assertThrows(UnsupportedOperationException.class, () -> genres.put("Drama", 0));
+
+        Files.write(source, Files.readAllLines(CSV).subList(0, 101));
+        analyzer.reload();
+        assertNotEquals(genres, analyzer.getMovieCountByGenre());
+        assertEquals(100, analyzer.getMovieCountByYear().values().stream().mapToInt(Integer::intValue).sum());
+        assertEquals(6, analyzer.getCacheMisses());
+    }
+
+    @Test
+    void disabledByDefault() {
+        MovieAnalyzer analyzer = new MovieAnalyzer(CSV.toString());
+        assertNotSame(analyzer.getTopStars(20, "gross"), analyzer.getTopStars(20, "gross"));
+        assertEquals(0, analyzer.getCacheHits());
+        assertEquals(0, analyzer.getCacheMisses());
+    }
+}
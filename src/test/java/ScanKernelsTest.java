@@ -0,0 +1,42 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScanKernelsTest {
+
+    @Test
+    void masksMatchTheScalarConditions() {
+        float[] ratings = {0f, 7.9f, 8.0f, 8.1f, 9.3f, Float.NaN};
+        short[] runtimes = {Short.MIN_VALUE, 0, 90, 150, 151, Short.MAX_VALUE};
+        int[] lists = {0, 1, 2, 0, 1, 2};
+        int[] listed = {-1, 0, -1};
+        for (float min : new float[]{Float.NEGATIVE_INFINITY, -1f, 0f, 8.0f, 9.3f, Float.NaN}) {
+            for (int max : new int[]{Integer.MIN_VALUE, Short.MIN_VALUE - 1, 0, 150, Short.MAX_VALUE, Integer.MAX_VALUE}) {
+                int[] mask = new int[ratings.length];
+                ScanKernels.atLeast(ratings, ratings.length, min, mask);
+                ScanKernels.andAtMost(runtimes, runtimes.length, max, mask);
+                ScanKernels.andListed(lists, lists.length, listed, mask);
+                for (int i = 0; i < ratings.length; i++) {
+                    boolean expected = ratings[i] >= min && runtimes[i] <= max && listed[lists[i]] != 0;
+                    assertEquals(expected ? -1 : 0, mask[i], min + " " + max + " row " + i);
+                }
+            }
+        }
+    }
+
+    @Test
+    void flagsNonZeroValues() {
+        long[] longs = {0, 1, -1, Long.MAX_VALUE, Long.MIN_VALUE, 2_000_000_000L};
+        int[] flags = new int[longs.length];
+        ScanKernels.nonZero(longs, longs.length, flags);
+        assertArrayEquals(new int[]{0, 1, 1, 1, 1, 1}, flags);
+
+        int[] ints = {0, 7, -7, Integer.MAX_VALUE, Integer.MIN_VALUE, 0};
+        ScanKernels.nonZero(ints, ints.length, flags);
+        assertArrayEquals(new int[]{0, 1, 1, 1, 1, 0}, flags);
+
+        long[] widened = new long[ints.length];
+        ScanKernels.widen(ints, ints.length, widened);
+        assertArrayEquals(new long[]{0, 7, -7, Integer.MAX_VALUE, Integer.MIN_VALUE, 0}, widened);
+    }
+}
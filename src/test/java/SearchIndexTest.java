@@ -0,0 +1,80 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SearchIndexTest {
+
+    @Test
+    void matchesAFullScanForEveryGenreAndCut() throws IOException {
+        MovieDataset d = MappedCsvLoader.load(Paths.get("resources", "imdb_top_500.csv"), false);
+        SearchIndex index = SearchIndex.build(d);
+        for (int genre = 0; genre < d.genres.size(); genre++) {
+            for (float minRating : new float[]{0f, 7.6f, 8.0f, 8.5f, 9.3f, 10f}) {
+                for (int maxRuntime : new int[]{0, 90, 120, 150, 400}) {
+                    List<String> expected = new ArrayList<>();
+                    for (int r = 0; r < d.size; r++) {
+                        boolean listed = false;
+                        for (String name : d.genreLists.get(d.genreList.get(r)).split(", ")) {
+                            listed |= name.equals(d.genres.get(genre));
+                        }
+                        if (listed && d.rating.get(r) >= minRating && d.runtime.get(r) <= maxRuntime) {
+                            expected.add(d.title.get(r));
+                        }
+                    }
+                    Collections.sort(expected);
+                    List<String> actual = new ArrayList<>();
+                    for (int r : index.search(d, genre, minRating, maxRuntime)) {
+                        actual.add(d.title.get(r));
+                    }
+                    assertEquals(expected, actual, d.genres.get(genre) + " " + minRating + " " + maxRuntime);
+                }
+            }
+        }
+    }
+
+    @Test
+    void ordersAreSortedByTheirKeys() throws IOException {
+        MovieDataset d = MappedCsvLoader.load(Paths.get("resources", "imdb_top_500.csv"), false);
+        SearchIndex index = SearchIndex.build(d);
+        for (int i = 1; i < d.size; i++) {
+            assertTrue(d.rating.get(index.byRating.get(i - 1)) <= d.rating.get(index.byRating.get(i)));
+            assertTrue(d.runtime.get(index.byRuntime.get(i - 1)) <= d.runtime.get(index.byRuntime.get(i)));
+            assertTrue(d.title.get(index.byTitle.get(i - 1)).compareTo(d.title.get(index.byTitle.get(i))) <= 0);
+        }
+        int[] rows = index.byTitle.toArray(d.size);
+        Arrays.sort(rows);
+        for (int r = 0; r < d.size; r++) {
+            assertEquals(r, rows[r]);
+        }
+    }
+
+    @Test
+    void offHeapDataSetsGetTheSameIndexInMappedFiles(@TempDir Path dir) throws IOException {
+        Path csv = Paths.get("resources", "imdb_top_500.csv");
+        MovieDataset d = MappedCsvLoader.load(csv, false);
+        Path file = dir.resolve("movies.snapshot");
+        MovieSnapshot.save(d, file, csv);
+        MovieDataset mapped = MovieSnapshot.open(file, csv, false, true);
+        SearchIndex expected = SearchIndex.build(d);
+        SearchIndex actual = SearchIndex.build(mapped);
+        assertArrayEquals(expected.byRating.toArray(d.size), actual.byRating.toArray(d.size));
+        assertArrayEquals(expected.byRuntime.toArray(d.size), actual.byRuntime.toArray(d.size));
+        assertArrayEquals(expected.byTitle.toArray(d.size), actual.byTitle.toArray(d.size));
+        assertArrayEquals(expected.titleRank.toArray(d.size), actual.titleRank.toArray(d.size));
+        assertEquals(expected.rowsOfGenre.length, actual.rowsOfGenre.length);
+        for (int genre = 0; genre < expected.rowsOfGenre.length; genre++) {
+            IntColumn rows = expected.rowsOfGenre[genre];
+            assertEquals(rows.capacity(), actual.rowsOfGenre[genre].capacity());
+            assertArrayEquals(rows.toArray(rows.capacity()), actual.rowsOfGenre[genre].toArray(rows.capacity()));
+        }
+    }
+}
@@ -0,0 +1,89 @@
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TextColumnTest {
+
+    @Test
+    void decodesRowsAcrossChunks() {
+        TextColumn column = new TextColumn(2);
+        char[] wide = new char[3 << 20];
+        Arrays.fill(wide, '\u00e9');
+        String big = new String(wide);
+        column.add("Caf\u00e9");
+        column.add(null);
+        column.add(big);
+        column.add("");
+        column.add(big);
+        assertEquals(5, column.size());
+        assertEquals("Caf\u00e9", column.get(0));
+        assertNull(column.get(1));
+        assertNull(column.bytes(1));
+        assertEquals(big, column.get(2));
+        assertEquals("", column.get(3));
+        assertEquals(big, column.get(4));
+        ByteBuffer bytes = column.bytes(0);
+        assertEquals("Caf\u00e9".getBytes(StandardCharsets.UTF_8).length, bytes.remaining());
+        assertTrue(bytes.isReadOnly());
+    }
+
+    @Test
+    void extensionsLeaveTheOriginalRowsAlone() {
+        TextColumn base = new TextColumn(4);
+        base.add("");
+        base.add("a");
+        base.add("b");
+        TextColumn inPlace = base.extend(4, true);
+        inPlace.add("c");
+        TextColumn copy = base.extend(4, false);
+        copy.add("d");
+        copy.add(inPlace, 3);
+        assertEquals(3, base.size());
+        assertEquals("b", base.get(2));
+        assertEquals("c", inPlace.get(3));
+        assertEquals(5, copy.size());
+        assertEquals("", copy.get(0));
+        assertEquals("d", copy.get(3));
+        assertEquals("c", copy.get(4));
+    }
+
+    @Test
+    void readsRowsHeldInDirectChunks() {
+        byte[] bytes = "ab\u00e9".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer chunk = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+        TextColumn column = new TextColumn(
+                new ByteBuffer[]{chunk.asReadOnlyBuffer()},
+                new LongColumn(new long[]{TextColumn.ref(0, 0), -1, TextColumn.ref(0, 1)}),
+                new IntColumn(new int[]{1, 0, 3}),
+                3,
+                true);
+        column.add("c");
+        column.add(column, 2);
+        assertEquals("a", column.get(0));
+        assertNull(column.get(1));
+        assertEquals(-1, column.length(1));
+        assertEquals("b\u00e9", column.get(2));
+        assertEquals(3, column.length(2));
+        assertEquals("c", column.get(3));
+        assertEquals("b\u00e9", column.get(4));
+    }
+
+    @Test
+    void comparesRowsLikeStrings() {
+        String[] values = {"", "a", "ab", "b", "Z", "\u00e9", "\u4e2d", "\uff21", "\ud83c\udfac", "\ud83c\udfad", "\ue000"};
+        TextColumn column = new TextColumn(1);
+        for (String value : values) {
+            column.add(value);
+        }
+        for (int a = 0; a < values.length; a++) {
+            for (int b = 0; b < values.length; b++) {
+                assertEquals(Integer.signum(values[a].compareTo(values[b])), Integer.signum(column.compare(a, b)),
+                        values[a] + " " + values[b]);
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TopKTest {
+
+    @Test
+    void selectsTheSameCandidatesAsAFullSort() {
+        Random random = new Random(3);
+        int[] values = new int[10_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextInt(500);
+        }
+        // Larger values first, ties broken by the smaller id.
+        TopK.Order order = (a, b) -> values[a] != values[b] ? Integer.compare(values[b], values[a]) : Integer.compare(a, b);
+        Integer[] all = new Integer[values.length];
+        Arrays.setAll(all, i -> i);
+        Arrays.sort(all, order::compare);
+        for (int k : new int[]{0, 1, 10, 257, values.length, values.length + 5}) {
+            TopK top = new TopK(k, order);
+            for (int i = 0; i < values.length; i++) {
+                top.offer(i);
+            }
+            int[] expected = Arrays.stream(all).limit(k).mapToInt(Integer::intValue).toArray();
+            assertArrayEquals(expected, top.result(), "k = " + k);
+        }
+    }
+
+    @Test
+    void sortsAColumnInPlace() {
+        Random random = new Random(5);
+        int[] values = new int[5_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextInt(100);
+        }
+        TopK.Order order = (a, b) -> values[a] != values[b] ? Integer.compare(values[a], values[b]) : Integer.compare(a, b);
+        Integer[] all = new Integer[values.length];
+        Arrays.setAll(all, i -> i);
+        Arrays.sort(all, order::compare);
+        int[] expected = Arrays.stream(all).mapToInt(Integer::intValue).toArray();
+        for (int length : new int[]{0, 1, 2, values.length}) {
+            IntColumn ids = new IntColumn(ByteBuffer.allocateDirect(4 * values.length).asIntBuffer());
+            for (int i = 0; i < values.length; i++) {
+                ids.set(i, i);
+            }
+            TopK.sort(ids, length, order);
+            int[] sorted = ids.toArray(values.length);
+            if (length == values.length) {
+                assertArrayEquals(expected, sorted);
+            } else {
+                // Ids past the length stay where they were.
+                for (int i = length; i < values.length; i++) {
+                    assertEquals(i, sorted[i]);
+                }
+            }
+        }
+    }
+}